@@ -3,39 +3,95 @@ package car.app.api.client;
 import car.app.api.config.ApplicationEnv;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import car.app.api.model.ManufacturerInfo;
-import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Client for the opendatasoft vehicle dataset. A single {@link HttpClient} is shared by all calls,
+ * so connections are kept alive and reused (over HTTP/2 when the server offers it). Each page is
+ * read whole before it is parsed, so a response that stalls mid-body still runs into the timeout.
+ */
 @Component
-@AllArgsConstructor
 public class CarsApiClient {
-    private ApplicationEnv applicationEnv;
+    private final ApplicationEnv applicationEnv;
     private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public CarsApiClient(ApplicationEnv applicationEnv, ObjectMapper objectMapper) {
+        this.applicationEnv = applicationEnv;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(applicationEnv.getCarsApiClientConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
 
     public ManufacturerInfo getAllCarModels(String limit, String offset, String brand) {
+        CompletableFuture<ManufacturerInfo> manufacturerInfo = getAllCarModelsAsync(limit, offset, brand);
         try {
-            URL apiUrl = new URL(applicationEnv.getCarsApiClientBaseUrl() + "?limit=" + limit + "&offset=" + (Integer.parseInt(offset) * Integer.parseInt(limit)) + "&refine=make%3A" + "'" + brand + "'");
-
-            HttpURLConnection connection = (HttpURLConnection) apiUrl.openConnection();
-
-            connection.setRequestMethod("GET");
+            return manufacturerInfo.get();
+        } catch (InterruptedException e) {
+            manufacturerInfo.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            String line;
-            StringBuilder response = new StringBuilder();
+    /**
+     * Sends the request and completes with the parsed page. The read timeout bounds the whole
+     * exchange, body included; once it passes the future fails with an {@link HttpTimeoutException}
+     * and the exchange is cancelled.
+     */
+    public CompletableFuture<ManufacturerInfo> getAllCarModelsAsync(String limit, String offset, String brand) {
+        Duration timeout = applicationEnv.getCarsApiClientReadTimeout();
+        CompletableFuture<HttpResponse<byte[]>> response = httpClient.sendAsync(buildRequest(limit, offset, brand),
+                HttpResponse.BodyHandlers.ofByteArray());
+        return response.copy()
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    response.cancel(true);
+                    return CompletableFuture.failedFuture(e instanceof TimeoutException
+                            ? new HttpTimeoutException("Cars API did not respond within " + timeout) : e);
+                })
+                .thenApply(this::read);
+    }
 
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
+    private HttpRequest buildRequest(String limit, String offset, String brand) {
+        String refine = URLEncoder.encode("make:'" + brand + "'", StandardCharsets.UTF_8).replace("+", "%20");
+        URI uri = URI.create(applicationEnv.getCarsApiClientBaseUrl() + "?limit=" + limit
+                + "&offset=" + (Integer.parseInt(offset) * Integer.parseInt(limit)) + "&refine=" + refine);
+        return HttpRequest.newBuilder(uri)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
 
-            return objectMapper.readerFor(ManufacturerInfo.class).readValue(response.toString());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private ManufacturerInfo read(HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Cars API responded with status " + response.statusCode()
+                    + " for " + response.uri());
+        }
+        try {
+            return objectMapper.readValue(response.body(), ManufacturerInfo.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
@@ -5,13 +5,21 @@ import lombok.ToString;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.time.Duration;
+
 @Component
 @Getter
 @ToString
 public class ApplicationEnv {
     private final String carsApiClientBaseUrl;
+    private final Duration carsApiClientConnectTimeout;
+    private final Duration carsApiClientReadTimeout;
 
-    public ApplicationEnv(@Value("${app.web.carsApiClient.baseUrl}") String carsApiClientBaseUrl){
+    public ApplicationEnv(@Value("${app.web.carsApiClient.baseUrl}") String carsApiClientBaseUrl,
+                          @Value("${app.web.carsApiClient.connectTimeout:PT5S}") Duration carsApiClientConnectTimeout,
+                          @Value("${app.web.carsApiClient.readTimeout:PT10S}") Duration carsApiClientReadTimeout){
         this.carsApiClientBaseUrl = carsApiClientBaseUrl;
+        this.carsApiClientConnectTimeout = carsApiClientConnectTimeout;
+        this.carsApiClientReadTimeout = carsApiClientReadTimeout;
     }
 }
@@ -0,0 +1,97 @@
+package car.app.api.client;
+
+import car.app.api.config.ApplicationEnv;
+import car.app.api.model.ManufacturerInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CarsApiClientTests {
+    private static final String BODY = """
+            {"total_count": 2, "results": [
+              {"make": "Land Rover", "model": "Defender", "year": 2020},
+              {"make": "Land Rover", "model": "Discovery"}
+            ]}
+            """;
+
+    private StubServer server;
+    private CarsApiClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubServer();
+        ApplicationEnv applicationEnv = new ApplicationEnv(server.url("/records"), Duration.ofSeconds(1),
+                Duration.ofMillis(500));
+        client = new CarsApiClient(applicationEnv, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void readsModelsAndPassesPagingAndBrand() {
+        server.respond(200, BODY);
+
+        ManufacturerInfo manufacturerInfo = client.getAllCarModels("20", "3", "Land Rover");
+
+        assertEquals(2, manufacturerInfo.getTotal_count());
+        assertEquals(List.of("Defender", "Discovery"),
+                manufacturerInfo.getResults().stream().map(ManufacturerInfo.Result::getModel).toList());
+        URI request = server.requests().get(0);
+        assertEquals("/records", request.getPath());
+        assertEquals("limit=20&offset=60&refine=make:'Land Rover'", request.getQuery());
+    }
+
+    @Test
+    void asyncCallsCompleteWithParsedBody() throws Exception {
+        server.respond(200, BODY);
+
+        ManufacturerInfo manufacturerInfo = client.getAllCarModelsAsync("20", "0", "Audi").get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, manufacturerInfo.getResults().size());
+    }
+
+    @Test
+    void failsOnErrorStatus() {
+        server.respond(503, "{\"error\": \"unavailable\"}");
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> client.getAllCarModels("20", "0", "Audi"));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void failsWhenResponseIsSlowerThanReadTimeout() {
+        server.respond(200, BODY).delay(Duration.ofSeconds(2));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.getAllCarModelsAsync("20", "0", "Audi").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+    }
+
+    @Test
+    void failsWhenTheBodyIsSlowerThanReadTimeout() {
+        server.respond(200, BODY).delayBody(Duration.ofSeconds(2));
+
+        long start = System.nanoTime();
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> client.getAllCarModels("20", "0", "Audi"));
+        assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+}
@@ -0,0 +1,21 @@
+package car.app.api.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "car_catalog_brands")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CarCatalogBrand {
+    @Id
+    private String name;
+    private LocalDateTime syncedAt;
+}
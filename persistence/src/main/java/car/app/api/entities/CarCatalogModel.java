@@ -0,0 +1,25 @@
+package car.app.api.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "car_catalog_models",
+        uniqueConstraints = @UniqueConstraint(name = "uk_car_catalog_models_brand_model", columnNames = {"brand", "model"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CarCatalogModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    private String brand;
+    private String model;
+
+    public CarCatalogModel(String brand, String model) {
+        this.brand = brand;
+        this.model = model;
+    }
+}
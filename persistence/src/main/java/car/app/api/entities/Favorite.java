@@ -0,0 +1,33 @@
+package car.app.api.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A post a user marked as favorite. The unique key makes adding a favorite twice a no-op.
+ */
+@Entity
+@Table(name = "favorites",
+        uniqueConstraints = @UniqueConstraint(name = "uk_favorites_user_post", columnNames = {"user_id", "post_id"}),
+        indexes = @Index(name = "idx_favorites_post", columnList = "post_id"))
+@Data
+@NoArgsConstructor
+public class Favorite {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    @Column(name = "post_id", nullable = false)
+    private String postId;
+    private LocalDateTime createdAt;
+
+    public Favorite(String userId, String postId) {
+        this.userId = userId;
+        this.postId = postId;
+        this.createdAt = LocalDateTime.now();
+    }
+}
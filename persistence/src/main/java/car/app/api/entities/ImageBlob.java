@@ -0,0 +1,60 @@
+package car.app.api.entities;
+
+import car.app.api.enums.ImageCodec;
+import car.app.api.enums.ImageStorage;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored copy of an image, shared by every {@link ImageUpload} row with the same content hash
+ * in the same storage. Only the database store keeps the bytes here; the filesystem store keeps them
+ * in the file named after the hash. The reference count is the number of rows pointing at the copy,
+ * and a copy nobody references is reclaimed once it has been unreferenced for a while.
+ */
+@Entity
+@Table(name = "image_blobs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_image_blobs_content_hash_storage", columnNames = {"content_hash", "storage"}),
+        indexes = @Index(name = "idx_image_blobs_unreferenced_at", columnList = "unreferenced_at"))
+@Data
+@NoArgsConstructor
+public class ImageBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage", nullable = false)
+    private ImageStorage storage;
+    @Enumerated(EnumType.STRING)
+    private ImageCodec codec;
+    @Lob
+    @ToString.Exclude
+    @Column(name = "data", columnDefinition = "MEDIUMBLOB")
+    private byte[] data;
+    /**
+     * Bytes the copy takes in its storage, after encoding.
+     */
+    private long storedLength;
+    private long referenceCount;
+    /**
+     * When the last reference went away, or when the copy was written and not referenced yet.
+     */
+    @Column(name = "unreferenced_at")
+    private LocalDateTime unreferencedAt;
+    private LocalDateTime createdAt;
+
+    public ImageBlob(String contentHash, ImageStorage storage, ImageCodec codec, byte[] data, long storedLength) {
+        this.contentHash = contentHash;
+        this.storage = storage;
+        this.codec = codec;
+        this.data = data;
+        this.storedLength = storedLength;
+        this.createdAt = LocalDateTime.now();
+        this.unreferencedAt = createdAt;
+    }
+}
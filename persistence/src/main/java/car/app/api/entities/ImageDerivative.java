@@ -0,0 +1,41 @@
+package car.app.api.entities;
+
+import car.app.api.enums.ImageSize;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Entity
+@Table(name = "image_derivatives",
+        uniqueConstraints = @UniqueConstraint(name = "uk_image_derivatives_image_size", columnNames = {"image_id", "image_size"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageDerivative {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    @Column(name = "image_id")
+    private String imageId;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "image_size")
+    private ImageSize imageSize;
+    private Integer width;
+    private Integer height;
+    private String contentType;
+    @Lob
+    @ToString.Exclude
+    @Column(name = "content", columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    public ImageDerivative(String imageId, ImageSize imageSize, int width, int height, String contentType, byte[] content) {
+        this.imageId = imageId;
+        this.imageSize = imageSize;
+        this.width = width;
+        this.height = height;
+        this.contentType = contentType;
+        this.content = content;
+    }
+}
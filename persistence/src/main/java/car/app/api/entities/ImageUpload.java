@@ -1,7 +1,11 @@
 package car.app.api.entities;
 
+import car.app.api.enums.ImageCodec;
+import car.app.api.enums.ImageStatus;
+import car.app.api.enums.ImageStorage;
 import car.app.api.utils.ImageUtil;
 import lombok.Data;
+import lombok.ToString;
 
 import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedBy;
@@ -10,18 +14,47 @@ import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
 
 import java.time.LocalDateTime;
+import java.util.Base64;
 
 @Entity
-@Table(name = "image_uploads")
+@Table(name = "image_uploads", indexes = @Index(name = "idx_image_uploads_status_next_attempt", columnList = "status, nextAttemptAt"))
 @Data
 public class ImageUpload {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     @Lob
+    @ToString.Exclude
     @Column(name = "profile_image", columnDefinition = "MEDIUMBLOB")
     private byte[] profileImage;
-    @ManyToOne(cascade = CascadeType.MERGE)
+    @Lob
+    @ToString.Exclude
+    @Column(name = "thumbnail", columnDefinition = "MEDIUMBLOB")
+    private byte[] thumbnail;
+    private String contentType;
+    @Column(length = 64)
+    private String contentHash;
+    private Long contentLength;
+    @Enumerated(EnumType.STRING)
+    private ImageStorage storage;
+    @Enumerated(EnumType.STRING)
+    private ImageCodec codec;
+    /**
+     * Where the image is in the processing pipeline. Rows uploaded before the pipeline existed have
+     * no status and are served as they were stored.
+     */
+    @Enumerated(EnumType.STRING)
+    private ImageStatus status;
+    private Integer processingAttempts;
+    private String processingError;
+    /**
+     * When a pending image may be retried, or when the lease of an image being processed runs out.
+     */
+    private LocalDateTime nextAttemptAt;
+    private Integer width;
+    private Integer height;
+    @ToString.Exclude
+    @ManyToOne(cascade = CascadeType.MERGE, fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id")
     private Post post;
     @CreatedDate
@@ -34,10 +67,15 @@ public class ImageUpload {
     private String modifiedBy;
 
     public void setProfileImage(String profileImage) {
-        this.profileImage = ImageUtil.compressFile(profileImage);
+        storeProfileImage(profileImage != null ? Base64.getDecoder().decode(profileImage) : null);
+    }
+
+    public void storeProfileImage(byte[] content) {
+        this.codec = content != null ? ImageUtil.codecFor(content) : null;
+        this.profileImage = ImageUtil.encode(codec, content);
     }
 
     public String getProfileImage() {
-        return ImageUtil.decompressFile(profileImage);
+        return profileImage != null ? Base64.getEncoder().encodeToString(ImageUtil.decode(codec, profileImage)) : null;
     }
 }
@@ -4,17 +4,26 @@ import car.app.api.enums.*;
 import lombok.Data;
 import jakarta.persistence.*;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "post")
+@Table(name = "post", indexes = {
+        @Index(name = "idx_post_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_post_brand_model_price", columnList = "brand, model, price"),
+        @Index(name = "idx_post_status_created_at", columnList = "post_status, createdAt")
+})
 @Data
 @ToString
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Post {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -33,14 +42,15 @@ public class Post {
     private String color;
     @Enumerated(EnumType.STRING)
     private Transmission transmission;
-    private String kilometers;
+    private Integer kilometers;
     @Enumerated(EnumType.STRING)
     private Fuel fuel;
-    private String power;
-    private String price;
-    private String firstRegistration;
-    private String engineSize;
-    private Boolean isFavorite;
+    private Integer power;
+    @Column(precision = 12, scale = 2)
+    private BigDecimal price;
+    private Integer firstRegistration;
+    @Column(precision = 7, scale = 1)
+    private BigDecimal engineSize;
     @ManyToOne(cascade = CascadeType.MERGE, fetch = FetchType.EAGER)
     @JoinColumn(name = "user_id")
     private User user;
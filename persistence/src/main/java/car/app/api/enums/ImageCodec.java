@@ -0,0 +1,6 @@
+package car.app.api.enums;
+
+public enum ImageCodec {
+    DEFLATE,
+    IDENTITY
+}
@@ -0,0 +1,21 @@
+package car.app.api.enums;
+
+/**
+ * Sizes the image pipeline renders every upload to, by the longest side in pixels. The smallest
+ * one doubles as the thumbnail.
+ */
+public enum ImageSize {
+    SMALL(320),
+    MEDIUM(1024),
+    LARGE(2048);
+
+    private final int maxDimension;
+
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+}
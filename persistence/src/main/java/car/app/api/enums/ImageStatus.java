@@ -0,0 +1,8 @@
+package car.app.api.enums;
+
+public enum ImageStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
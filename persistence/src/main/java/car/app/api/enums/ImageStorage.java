@@ -0,0 +1,6 @@
+package car.app.api.enums;
+
+public enum ImageStorage {
+    DATABASE,
+    FILESYSTEM
+}
@@ -0,0 +1,16 @@
+package car.app.api.repository;
+
+import car.app.api.entities.CarCatalogBrand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CarCatalogBrandRepository extends JpaRepository<CarCatalogBrand, String> {
+    @Query("select b.name from CarCatalogBrand b where b.syncedAt is null or b.syncedAt < :syncedBefore "
+            + "order by b.syncedAt asc nulls first")
+    List<String> findNamesSyncedBefore(@Param("syncedBefore") LocalDateTime syncedBefore, Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package car.app.api.repository;
+
+import car.app.api.entities.CarCatalogModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CarCatalogModelRepository extends JpaRepository<CarCatalogModel, String> {
+    List<CarCatalogModel> findAllByBrand(String brand);
+
+    @Modifying
+    @Query("delete from CarCatalogModel m where m.brand = :brand")
+    void deleteAllByBrand(@Param("brand") String brand);
+}
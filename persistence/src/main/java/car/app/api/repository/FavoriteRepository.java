@@ -0,0 +1,33 @@
+package car.app.api.repository;
+
+import car.app.api.entities.Favorite;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface FavoriteRepository extends JpaRepository<Favorite, String> {
+    @Query("select f.postId from Favorite f where f.userId = :userId")
+    List<String> findPostIdsByUserId(@Param("userId") String userId);
+
+    /**
+     * Removes one favorite, returning 0 when the post was not a favorite of the user.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Favorite f where f.userId = :userId and f.postId = :postId")
+    int deleteByUserIdAndPostId(@Param("userId") String userId, @Param("postId") String postId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Favorite f where f.postId = :postId")
+    void deleteAllByPostId(@Param("postId") String postId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Favorite f where f.userId = :userId")
+    void deleteAllByUserId(@Param("userId") String userId);
+}
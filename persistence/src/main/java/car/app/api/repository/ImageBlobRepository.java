@@ -0,0 +1,86 @@
+package car.app.api.repository;
+
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.Post;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.projection.ImageBlobStats;
+import car.app.api.repository.projection.UnreferencedBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reference counts only cover rows that point at a blob, so rows still holding their own bytes in
+ * {@code profile_image} are left out of them.
+ */
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+    @Query("select b.contentHash from ImageBlob b where b.storage = :storage and b.contentHash in :contentHashes")
+    List<String> findContentHashes(@Param("storage") ImageStorage storage, @Param("contentHashes") Collection<String> contentHashes);
+
+    boolean existsByContentHashAndStorage(String contentHash, ImageStorage storage);
+
+    /**
+     * Adds {@code count} references to each of the given blobs, returning how many blobs were updated.
+     */
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = b.referenceCount + :count, b.unreferencedAt = null "
+            + "where b.storage = :storage and b.contentHash in :contentHashes")
+    int addReferences(@Param("storage") ImageStorage storage, @Param("contentHashes") Collection<String> contentHashes,
+                      @Param("count") long count);
+
+    /**
+     * Drops the references of the post's images. Must run before the rows are deleted.
+     */
+    @Modifying
+    @Query("update ImageBlob b set b.referenceCount = b.referenceCount - (select count(i) from ImageUpload i "
+            + "where i.post = :post and i.contentHash = b.contentHash and i.storage = b.storage and i.profileImage is null) "
+            + "where exists (select i.id from ImageUpload i where i.post = :post and i.contentHash = b.contentHash "
+            + "and i.storage = b.storage and i.profileImage is null)")
+    int removeReferences(@Param("post") Post post);
+
+    @Modifying
+    @Query("update ImageBlob b set b.unreferencedAt = :now where b.referenceCount <= 0 and b.unreferencedAt is null "
+            + "and exists (select i.id from ImageUpload i where i.post = :post and i.contentHash = b.contentHash "
+            + "and i.storage = b.storage)")
+    int markUnreferenced(@Param("post") Post post, @Param("now") LocalDateTime now);
+
+    /**
+     * Counts the references to the blobs of one content hash from scratch, for rows that moved
+     * between stores.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ImageBlob b set b.referenceCount = (select count(i) from ImageUpload i where i.contentHash = b.contentHash "
+            + "and i.storage = b.storage and i.profileImage is null) where b.contentHash = :contentHash")
+    int recountReferences(@Param("contentHash") String contentHash);
+
+    @Modifying
+    @Query("update ImageBlob b set b.unreferencedAt = case when b.referenceCount > 0 then null "
+            + "else coalesce(b.unreferencedAt, :now) end where b.contentHash = :contentHash")
+    int updateUnreferencedAt(@Param("contentHash") String contentHash, @Param("now") LocalDateTime now);
+
+    @Query("select b.id as id, b.contentHash as contentHash, b.storage as storage, b.storedLength as storedLength "
+            + "from ImageBlob b where b.unreferencedAt <= :before and b.referenceCount <= 0 order by b.unreferencedAt")
+    List<UnreferencedBlob> findUnreferenced(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * Deletes a blob that is still unreferenced since before the given time, returning 0 when it was
+     * referenced again meanwhile.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from ImageBlob b where b.id = :id and b.unreferencedAt <= :before and b.referenceCount <= 0")
+    int deleteUnreferenced(@Param("id") String id, @Param("before") LocalDateTime before);
+
+    @Query("select count(b) as contents, coalesce(sum(b.referenceCount), 0) as referenceCount, "
+            + "coalesce(sum(b.storedLength), 0) as storedBytes, "
+            + "coalesce(sum(b.storedLength * b.referenceCount), 0) as referencedBytes "
+            + "from ImageBlob b where b.referenceCount > 0")
+    ImageBlobStats findStats();
+}
@@ -0,0 +1,28 @@
+package car.app.api.repository;
+
+import car.app.api.entities.ImageDerivative;
+import car.app.api.entities.Post;
+import car.app.api.enums.ImageSize;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ImageDerivativeRepository extends JpaRepository<ImageDerivative, String> {
+    @Query("select d.imageSize from ImageDerivative d where d.imageId = :imageId")
+    List<ImageSize> findImageSizesByImageId(@Param("imageId") String imageId);
+
+    @Query("select d.content from ImageDerivative d where d.imageId = :imageId and d.imageSize = :size")
+    Optional<byte[]> findContentByImageIdAndImageSize(@Param("imageId") String imageId, @Param("size") ImageSize size);
+
+    @Modifying
+    @Query("delete from ImageDerivative d where d.imageId = :imageId")
+    void deleteAllByImageId(@Param("imageId") String imageId);
+
+    @Modifying
+    @Query("delete from ImageDerivative d where d.imageId in (select i.id from ImageUpload i where i.post = :post)")
+    void deleteAllByImagePost(@Param("post") Post post);
+}
@@ -2,12 +2,120 @@ package car.app.api.repository;
 
 import car.app.api.entities.ImageUpload;
 import car.app.api.entities.Post;
+import car.app.api.enums.ImageStatus;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.projection.ImageProcessingState;
+import car.app.api.repository.projection.ImageReference;
+import car.app.api.repository.projection.ImageThumbnail;
+import car.app.api.repository.projection.StoredImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ImageUploadRepository extends JpaRepository<ImageUpload, String> {
     List<ImageUpload> findAllByPost(Post post);
 
+    @Query("select i.id as id, i.post.id as postId from ImageUpload i where i.post.id in :postIds")
+    List<ImageReference> findReferencesByPostIdIn(@Param("postIds") Collection<String> postIds);
+
+    /**
+     * Reads the bytes and codec from the blob the row points at, or from the row itself when it was
+     * stored before blobs existed.
+     */
+    @Query("select i.id as id, coalesce(b.data, i.profileImage) as data, i.contentType as contentType, "
+            + "i.contentHash as contentHash, i.contentLength as contentLength, i.storage as storage, "
+            + "coalesce(b.codec, i.codec) as codec from ImageUpload i "
+            + "left join ImageBlob b on b.contentHash = i.contentHash and b.storage = i.storage where i.id = :id")
+    Optional<StoredImage> findStoredImageById(@Param("id") String id);
+
+    @Query("select distinct i.contentHash from ImageUpload i where i.post = :post and i.storage = :storage")
+    List<String> findContentHashesByPostAndStorage(@Param("post") Post post, @Param("storage") ImageStorage storage);
+
+    /**
+     * Returns rows kept in another storage, or still holding their own bytes instead of pointing at a blob.
+     */
+    @Query("select i.id from ImageUpload i where (i.storage is null or i.storage <> :storage or i.profileImage is not null) "
+            + "and i.id > :afterId order by i.id")
+    List<String> findIdsToMigrate(@Param("storage") ImageStorage storage, @Param("afterId") String afterId, Pageable pageable);
+
+    long countByContentHashAndStorage(String contentHash, ImageStorage storage);
+
+    @Modifying
+    @Transactional
+    @Query("update ImageUpload i set i.contentType = :contentType, i.contentHash = :contentHash, "
+            + "i.contentLength = :contentLength where i.id = :id")
+    void updateContentMetadata(@Param("id") String id, @Param("contentType") String contentType,
+                               @Param("contentHash") String contentHash, @Param("contentLength") Long contentLength);
+
+    @Query("select i.status as status, i.thumbnail as thumbnail from ImageUpload i where i.id = :id")
+    Optional<ImageThumbnail> findThumbnailById(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("update ImageUpload i set i.thumbnail = :thumbnail where i.id = :id")
+    void updateThumbnail(@Param("id") String id, @Param("thumbnail") byte[] thumbnail);
+
+    /**
+     * Points images uploaded by the given user and not attached yet at the post, returning how many
+     * of them were attached. The post is flushed first, since the update references its row.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ImageUpload i set i.post = :post, i.modifiedAt = :modifiedAt, i.modifiedBy = :username "
+            + "where i.id in :ids and i.post is null and i.createdBy = :username")
+    int attachToPost(@Param("ids") Collection<String> ids, @Param("post") Post post, @Param("username") String username,
+                     @Param("modifiedAt") LocalDateTime modifiedAt);
+
+    @Query("select i.id as id, i.status as status, i.processingAttempts as processingAttempts, "
+            + "i.processingError as processingError, i.width as width, i.height as height from ImageUpload i where i.id = :id")
+    Optional<ImageProcessingState> findProcessingStateById(@Param("id") String id);
+
+    @Query("select i.id from ImageUpload i where i.status = :status and (i.nextAttemptAt is null or i.nextAttemptAt <= :now) "
+            + "order by i.createdAt")
+    List<String> findIdsToProcess(@Param("status") ImageStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Moves a pending image to processing and counts the attempt, returning 0 when another worker
+     * already took it. The lease is how long it may stay processing before it is picked up again.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageUpload i set i.status = :processing, i.processingAttempts = coalesce(i.processingAttempts, 0) + 1, "
+            + "i.nextAttemptAt = :leaseUntil where i.id = :id and i.status = :pending")
+    int claimForProcessing(@Param("id") String id, @Param("pending") ImageStatus pending,
+                           @Param("processing") ImageStatus processing, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("update ImageUpload i set i.status = :status, i.width = :width, i.height = :height, i.thumbnail = :thumbnail, "
+            + "i.processingError = null, i.nextAttemptAt = null where i.id = :id")
+    int markProcessed(@Param("id") String id, @Param("status") ImageStatus status, @Param("width") Integer width,
+                      @Param("height") Integer height, @Param("thumbnail") byte[] thumbnail);
+
+    @Modifying
+    @Transactional
+    @Query("update ImageUpload i set i.status = :status, i.processingError = :error, i.nextAttemptAt = :nextAttemptAt "
+            + "where i.id = :id")
+    void markProcessingFailed(@Param("id") String id, @Param("status") ImageStatus status, @Param("error") String error,
+                              @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Returns images whose processing lease ran out, for example because the server stopped while
+     * they were processed, to pending, or fails them when they used up their attempts.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageUpload i set i.status = case when i.processingAttempts >= :maxAttempts then :failed else :pending end, "
+            + "i.nextAttemptAt = null where i.status = :processing and i.nextAttemptAt <= :now")
+    int releaseExpiredLeases(@Param("processing") ImageStatus processing, @Param("pending") ImageStatus pending,
+                             @Param("failed") ImageStatus failed, @Param("maxAttempts") int maxAttempts,
+                             @Param("now") LocalDateTime now);
+
     void deleteAllByPost(Post post);
 }
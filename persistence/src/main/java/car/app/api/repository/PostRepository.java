@@ -1,16 +1,42 @@
 package car.app.api.repository;
 
 import car.app.api.entities.Post;
-import car.app.api.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PostRepository extends PagingAndSortingRepository<Post, String> {
+    @EntityGraph(attributePaths = "user")
+    Page<Post> findAll(Pageable pageable);
+    @EntityGraph(attributePaths = "user")
     Page<Post> findByUserId(String userId, Pageable pageable);
     Post save(Post post);
     Optional<Post> findById(String postId);
     void deleteById(String postId);
-    Page<Post> findAllByUserAndIsFavoriteTrue(Pageable pageable, User user);
+    /**
+     * Posts the user marked as favorite, most recently added first.
+     */
+    @Query(value = "select p from Favorite f join Post p on p.id = f.postId join fetch p.user where f.userId = :userId "
+            + "order by f.createdAt desc, f.id desc",
+            countQuery = "select count(f) from Favorite f join Post p on p.id = f.postId where f.userId = :userId")
+    Page<Post> findFavoritesByUserId(@Param("userId") String userId, Pageable pageable);
+    @EntityGraph(attributePaths = "user")
+    List<Post> findAllByIdIn(Collection<String> ids);
+
+    /**
+     * Ids of the posts matching a MySQL natural language full-text query, most relevant first.
+     * Needs the {@code ft_post_text} FULLTEXT index.
+     */
+    @Query(value = "select p.id from post p where match(p.title, p.description, p.brand, p.model) against (:query) "
+            + "order by match(p.title, p.description, p.brand, p.model) against (:query) desc, p.created_at desc, p.id desc",
+            countQuery = "select count(*) from post p where match(p.title, p.description, p.brand, p.model) against (:query)",
+            nativeQuery = true)
+    Page<String> findIdsByFullText(@Param("query") String query, Pageable pageable);
 }
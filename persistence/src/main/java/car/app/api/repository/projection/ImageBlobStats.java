@@ -0,0 +1,11 @@
+package car.app.api.repository.projection;
+
+public interface ImageBlobStats {
+    long getContents();
+
+    long getReferenceCount();
+
+    long getStoredBytes();
+
+    long getReferencedBytes();
+}
@@ -0,0 +1,17 @@
+package car.app.api.repository.projection;
+
+import car.app.api.enums.ImageStatus;
+
+public interface ImageProcessingState {
+    String getId();
+
+    ImageStatus getStatus();
+
+    Integer getProcessingAttempts();
+
+    String getProcessingError();
+
+    Integer getWidth();
+
+    Integer getHeight();
+}
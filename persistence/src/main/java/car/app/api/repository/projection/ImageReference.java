@@ -0,0 +1,7 @@
+package car.app.api.repository.projection;
+
+public interface ImageReference {
+    String getId();
+
+    String getPostId();
+}
@@ -0,0 +1,9 @@
+package car.app.api.repository.projection;
+
+import car.app.api.enums.ImageStatus;
+
+public interface ImageThumbnail {
+    ImageStatus getStatus();
+
+    byte[] getThumbnail();
+}
@@ -0,0 +1,20 @@
+package car.app.api.repository.projection;
+
+import car.app.api.enums.ImageCodec;
+import car.app.api.enums.ImageStorage;
+
+public interface StoredImage {
+    String getId();
+
+    byte[] getData();
+
+    String getContentType();
+
+    String getContentHash();
+
+    Long getContentLength();
+
+    ImageStorage getStorage();
+
+    ImageCodec getCodec();
+}
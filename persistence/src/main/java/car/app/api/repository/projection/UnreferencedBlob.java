@@ -0,0 +1,13 @@
+package car.app.api.repository.projection;
+
+import car.app.api.enums.ImageStorage;
+
+public interface UnreferencedBlob {
+    String getId();
+
+    String getContentHash();
+
+    ImageStorage getStorage();
+
+    long getStoredLength();
+}
@@ -0,0 +1,72 @@
+package car.app.api.storage;
+
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.ImageUpload;
+import car.app.api.enums.ImageCodec;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.projection.StoredImage;
+import car.app.api.utils.ImageUtil;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps images in the {@code data} column of {@code image_blobs}, encoded with the codec recorded
+ * on the blob, so equal images share one copy. Rows stored before blobs existed keep their bytes in
+ * the {@code profile_image} column of {@code image_uploads} until they are migrated.
+ */
+@Component
+public class DatabaseImageStore implements ImageStore {
+
+    @Override
+    public ImageStorage getStorage() {
+        return ImageStorage.DATABASE;
+    }
+
+    @Override
+    public ImageBlob write(ImageUpload imageUpload, byte[] content) {
+        ImageCodec codec = ImageUtil.codecFor(content);
+        byte[] encoded = ImageUtil.encode(codec, content);
+        imageUpload.storeProfileImage(null);
+        imageUpload.setStorage(ImageStorage.DATABASE);
+        return new ImageBlob(imageUpload.getContentHash(), ImageStorage.DATABASE, codec, encoded, encoded.length);
+    }
+
+    /**
+     * The blob holds the whole encoded image, so the staged file is read into memory once.
+     */
+    @Override
+    public ImageBlob write(ImageUpload imageUpload, Path content) throws IOException {
+        return write(imageUpload, Files.readAllBytes(content));
+    }
+
+    @Override
+    public InputStream openStream(StoredImage image) {
+        return ImageUtil.openStream(image.getCodec(), image.getData());
+    }
+
+    @Override
+    public long transferTo(StoredImage image, long position, long count, WritableByteChannel target) throws IOException {
+        try (InputStream inputStream = openStream(image)) {
+            return StreamUtils.copyRange(inputStream, Channels.newOutputStream(target), position, position + count - 1);
+        }
+    }
+
+    /**
+     * The content lives in the blob row itself, so it exists as long as the blob does.
+     */
+    @Override
+    public boolean exists(String contentHash) {
+        return true;
+    }
+
+    @Override
+    public void delete(String contentHash) {
+    }
+}
@@ -0,0 +1,152 @@
+package car.app.api.storage;
+
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.ImageUpload;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.projection.StoredImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Content-addressed image store on the local filesystem. Files are named after the SHA-256 of
+ * the decoded image and fanned out over two directory levels ({@code ab/cd/abcd...}), so equal
+ * images share one file. The file is deleted once neither its blob nor a row written before blobs
+ * existed references it.
+ */
+@Component
+public class FileSystemImageStore implements ImageStore {
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemImageStore.class);
+    private final Path root;
+    private final ImageUploadRepository imageUploadRepository;
+    private final ImageBlobRepository imageBlobRepository;
+
+    public FileSystemImageStore(@Value("${app.images.storage.filesystem.root:data/images}") String root,
+                                ImageUploadRepository imageUploadRepository, ImageBlobRepository imageBlobRepository) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.imageUploadRepository = imageUploadRepository;
+        this.imageBlobRepository = imageBlobRepository;
+    }
+
+    @Override
+    public ImageStorage getStorage() {
+        return ImageStorage.FILESYSTEM;
+    }
+
+    @Override
+    public ImageBlob write(ImageUpload imageUpload, byte[] content) throws IOException {
+        return store(imageUpload, temporary -> Files.write(temporary, content));
+    }
+
+    @Override
+    public ImageBlob write(ImageUpload imageUpload, Path content) throws IOException {
+        return store(imageUpload, temporary -> Files.copy(content, temporary, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    private ImageBlob store(ImageUpload imageUpload, ContentWriter contentWriter) throws IOException {
+        Path target = resolve(imageUpload.getContentHash());
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), imageUpload.getContentHash(), ".tmp");
+            try {
+                contentWriter.write(temporary);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                deleteOnRollback(imageUpload.getContentHash());
+            } catch (FileAlreadyExistsException ignored) {
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        imageUpload.storeProfileImage(null);
+        imageUpload.setStorage(ImageStorage.FILESYSTEM);
+        return new ImageBlob(imageUpload.getContentHash(), ImageStorage.FILESYSTEM, null, null, Files.size(target));
+    }
+
+    @Override
+    public InputStream openStream(StoredImage image) throws IOException {
+        return Files.newInputStream(resolve(image.getContentHash()));
+    }
+
+    /**
+     * Uses {@link FileChannel#transferTo}, which lets the kernel copy straight from the page cache
+     * when the target is a file or socket channel.
+     */
+    @Override
+    public long transferTo(StoredImage image, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(image.getContentHash()), StandardOpenOption.READ)) {
+            long transferred = 0;
+            while (transferred < count) {
+                long written = channel.transferTo(position + transferred, count - transferred, target);
+                if (written <= 0) {
+                    break;
+                }
+                transferred += written;
+            }
+            return transferred;
+        }
+    }
+
+    @Override
+    public boolean exists(String contentHash) {
+        return Files.exists(resolve(contentHash));
+    }
+
+    @Override
+    public void delete(String contentHash) throws IOException {
+        if (!imageBlobRepository.existsByContentHashAndStorage(contentHash, ImageStorage.FILESYSTEM)
+                && imageUploadRepository.countByContentHashAndStorage(contentHash, ImageStorage.FILESYSTEM) == 0) {
+            Files.deleteIfExists(resolve(contentHash));
+        }
+    }
+
+    /**
+     * The file is written before the transaction of its row commits. If that transaction does not
+     * commit, the file is deleted again unless a blob or row committed meanwhile references it.
+     */
+    private void deleteOnRollback(String contentHash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    delete(contentHash);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not delete image {} written by a rolled back transaction", contentHash, e);
+                }
+            }
+        });
+    }
+
+    private Path resolve(String contentHash) {
+        if (contentHash == null || !contentHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid image content hash: " + contentHash);
+        }
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2, 4)).resolve(contentHash);
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(Path temporary) throws IOException;
+    }
+}
@@ -0,0 +1,52 @@
+package car.app.api.storage;
+
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.ImageUpload;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.projection.StoredImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Backend holding the original bytes of uploaded images. The {@link ImageUpload} row keeps the
+ * metadata and records which backend its content lives in, so rows written by different
+ * backends can be read side by side.
+ */
+public interface ImageStore {
+    ImageStorage getStorage();
+
+    /**
+     * Stores the decoded image content and points the given row at it. The row's content hash
+     * must already be set. Returns the blob describing the stored copy, which the caller saves and
+     * counts the row's reference on; content the store holds already should only be referenced.
+     */
+    ImageBlob write(ImageUpload imageUpload, byte[] content) throws IOException;
+
+    /**
+     * Stores an image staged in a file, such as an uploaded part, copying it without loading it
+     * into memory where the backend allows it. The row's content hash must already be set.
+     */
+    ImageBlob write(ImageUpload imageUpload, Path content) throws IOException;
+
+    InputStream openStream(StoredImage image) throws IOException;
+
+    /**
+     * Copies {@code count} bytes of the decoded image, starting at {@code position}, to the target.
+     */
+    long transferTo(StoredImage image, long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * Whether content written for the given hash is still held by this store.
+     */
+    boolean exists(String contentHash);
+
+    /**
+     * Releases the content with the given hash once neither a blob nor a row of this store
+     * references it anymore. Must run in the transaction that deletes the blob, so that a blob for
+     * the same hash cannot be committed until the content is gone.
+     */
+    void delete(String contentHash) throws IOException;
+}
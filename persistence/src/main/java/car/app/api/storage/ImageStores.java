@@ -0,0 +1,33 @@
+package car.app.api.storage;
+
+import car.app.api.enums.ImageStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the store new images are written to ({@code app.images.storage.type}) and the store an
+ * existing row is read from. Rows written before stores existed have no storage and live in the
+ * database.
+ */
+@Component
+public class ImageStores {
+    private final Map<ImageStorage, ImageStore> stores = new EnumMap<>(ImageStorage.class);
+    private final ImageStorage storage;
+
+    public ImageStores(List<ImageStore> stores, @Value("${app.images.storage.type:DATABASE}") ImageStorage storage) {
+        stores.forEach(store -> this.stores.put(store.getStorage(), store));
+        this.storage = storage;
+    }
+
+    public ImageStore current() {
+        return get(storage);
+    }
+
+    public ImageStore get(ImageStorage storage) {
+        return stores.get(storage != null ? storage : ImageStorage.DATABASE);
+    }
+}
@@ -0,0 +1,63 @@
+package car.app.api.utils;
+
+public enum ImageFormat {
+    JPEG("image/jpeg", true),
+    PNG("image/png", true),
+    GIF("image/gif", true),
+    WEBP("image/webp", true),
+    BMP("image/bmp", false),
+    UNKNOWN("application/octet-stream", false);
+
+    private final String mediaType;
+    private final boolean compressed;
+
+    ImageFormat(String mediaType, boolean compressed) {
+        this.mediaType = mediaType;
+        this.compressed = compressed;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Whether the format already carries its own compression, so deflating it again gains nothing.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public static ImageFormat detect(byte[] data) {
+        if (data == null) {
+            return UNKNOWN;
+        }
+        if (startsWith(data, 0, 0xFF, 0xD8, 0xFF)) {
+            return JPEG;
+        }
+        if (startsWith(data, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return PNG;
+        }
+        if (startsWith(data, 0, 'G', 'I', 'F', '8')) {
+            return GIF;
+        }
+        if (startsWith(data, 0, 'R', 'I', 'F', 'F') && startsWith(data, 8, 'W', 'E', 'B', 'P')) {
+            return WEBP;
+        }
+        if (startsWith(data, 0, 'B', 'M')) {
+            return BMP;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... signature) {
+        if (data.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((data[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
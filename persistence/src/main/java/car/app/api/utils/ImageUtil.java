@@ -1,51 +1,222 @@
 package car.app.api.utils;
 
+import car.app.api.enums.ImageCodec;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class ImageUtil {
-    public static byte[] compressFile(String content) {
-        if (content != null) {
-            byte[] byteData = Base64.getDecoder().decode(content);
-            Deflater deflater = new Deflater();
-            deflater.setLevel(Deflater.BEST_COMPRESSION);
-            deflater.setInput(byteData);
-            deflater.finish();
+    public static final int THUMBNAIL_SIZE = 320;
+    private static final float JPEG_QUALITY = 0.8f;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Formats that are compressed already are stored as they are; anything else is deflated.
+     */
+    public static ImageCodec codecFor(byte[] content) {
+        return ImageFormat.detect(content).isCompressed() ? ImageCodec.IDENTITY : ImageCodec.DEFLATE;
+    }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(byteData.length);
-            byte[] tmp = new byte[4 * 1024];
+    public static byte[] encode(ImageCodec codec, byte[] content) {
+        if (content == null) {
+            return null;
+        }
+        if (codec == ImageCodec.IDENTITY) {
+            return content;
+        }
+        Deflater deflater = borrowDeflater();
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, content.length / 2));
+            byte[] buffer = new byte[BUFFER_SIZE];
             while (!deflater.finished()) {
-                int size = deflater.deflate(tmp);
-                outputStream.write(tmp, 0, size);
-            }
-            try {
-                outputStream.close();
-            } catch (Exception ignored) {
+                int size = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, size);
             }
             return outputStream.toByteArray();
+        } finally {
+            release(deflater);
         }
-        return null;
     }
 
-    public static String decompressFile(byte[] data) {
-        if (data != null) {
-            Inflater inflater = new Inflater();
-            inflater.setInput(data);
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-            byte[] tmp = new byte[4 * 1024];
-            try {
-                while (!inflater.finished()) {
-                    int count = inflater.inflate(tmp);
-                    outputStream.write(tmp, 0, count);
+    public static byte[] decode(ImageCodec codec, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (InputStream inputStream = openStream(codec, data)) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens a stream that decodes stored image data on the fly, so callers can copy the image
+     * without holding the decoded bytes in memory. Rows stored before codecs were recorded have
+     * no codec and are deflated.
+     */
+    public static InputStream openStream(ImageCodec codec, byte[] data) {
+        if (codec == ImageCodec.IDENTITY) {
+            return new ByteArrayInputStream(data);
+        }
+        Inflater inflater = borrowInflater();
+        return new InflaterInputStream(new ByteArrayInputStream(data), inflater, BUFFER_SIZE) {
+            private boolean released;
+
+            @Override
+            public void close() throws IOException {
+                if (!released) {
+                    released = true;
+                    super.close();
+                    release(inflater);
                 }
-                outputStream.close();
-            } catch (Exception ignored) {
             }
-            byte[] decompressedData = outputStream.toByteArray();
-            return Base64.getEncoder().encodeToString(decompressedData);
+        };
+    }
+
+    /**
+     * Takes a deflater from the pool, or a new one when the pool is empty. Every borrowed instance
+     * goes back through {@link #release(Deflater)}, which resets it, or ends it when the pool is full.
+     */
+    static Deflater borrowDeflater() {
+        Deflater deflater = DEFLATERS.poll();
+        return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    static void release(Deflater deflater) {
+        deflater.reset();
+        if (!DEFLATERS.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    static Inflater borrowInflater() {
+        Inflater inflater = INFLATERS.poll();
+        return inflater != null ? inflater : new Inflater();
+    }
+
+    static void release(Inflater inflater) {
+        inflater.reset();
+        if (!INFLATERS.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    public static String sha256Hex(byte[] content) {
+        return HexFormat.of().formatHex(sha256().digest(content));
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Scales an image down so that its longest side is at most {@link #THUMBNAIL_SIZE} pixels and
+     * encodes it as JPEG. Returns {@code null} when the content is not an image ImageIO can read.
+     */
+    public static byte[] createThumbnail(byte[] content) {
+        if (content == null) {
+            return null;
+        }
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(content));
+            if (source == null) {
+                return null;
+            }
+            return scaleToJpeg(source, scaledDimension(source.getWidth(), source.getHeight(), THUMBNAIL_SIZE));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the width and height from the image header without decoding the pixels, so oversized
+     * images can be turned away before they are loaded. Returns {@code null} when ImageIO has no
+     * reader for the content.
+     */
+    public static Dimension readDimensions(byte[] content) throws IOException {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * The size of an image scaled down, keeping its aspect ratio, so that its longest side is at most
+     * {@code maxDimension}. Images that are small enough keep their size.
+     */
+    public static Dimension scaledDimension(int width, int height, int maxDimension) {
+        double scale = Math.min(1d, (double) maxDimension / Math.max(width, height));
+        return new Dimension(Math.max(1, (int) Math.round(width * scale)), Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    /**
+     * Draws the image at the given size on a white background, which replaces any transparency,
+     * and encodes it as JPEG.
+     */
+    public static byte[] scaleToJpeg(BufferedImage source, Dimension size) throws IOException {
+        BufferedImage scaled = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, size.width, size.height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return writeJpeg(scaled, JPEG_QUALITY);
+    }
+
+    private static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(quality);
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
         }
-        return null;
+        return outputStream.toByteArray();
     }
 }
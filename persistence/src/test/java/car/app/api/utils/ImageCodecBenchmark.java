@@ -0,0 +1,134 @@
+package car.app.api.utils;
+
+import car.app.api.enums.ImageCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compares storing an uploaded image with the format-aware codecs in {@link ImageUtil} against the
+ * previous approach of running a fresh {@code BEST_COMPRESSION} deflater over every image.
+ * Run {@link #main} from the IDE or with the test classpath after {@code mvn -pl persistence test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageCodecBenchmark {
+
+    @Param({"jpg", "png", "bmp"})
+    private String format;
+
+    private byte[] content;
+    private byte[] legacyStored;
+    private byte[] stored;
+    private ImageCodec codec;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BufferedImage image = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(42);
+        for (int i = 0; i < 400; i++) {
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillOval(random.nextInt(1280), random.nextInt(960), 20 + random.nextInt(200), 20 + random.nextInt(200));
+        }
+        graphics.dispose();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, outputStream);
+        content = outputStream.toByteArray();
+
+        legacyStored = legacyCompress(content);
+        codec = ImageUtil.codecFor(content);
+        stored = ImageUtil.encode(codec, content);
+    }
+
+    @Benchmark
+    public byte[] legacyCompress() {
+        return legacyCompress(content);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return ImageUtil.encode(ImageUtil.codecFor(content), content);
+    }
+
+    @Benchmark
+    public byte[] legacyDecompress() {
+        return legacyDecompress(legacyStored);
+    }
+
+    @Benchmark
+    public byte[] codecDecode() {
+        return ImageUtil.decode(codec, stored);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ImageCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * {@code ImageUtil.compress} as it was before codecs were introduced.
+     */
+    private static byte[] legacyCompress(byte[] byteData) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setLevel(Deflater.BEST_COMPRESSION);
+            deflater.setInput(byteData);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(byteData.length);
+            byte[] tmp = new byte[4 * 1024];
+            while (!deflater.finished()) {
+                int size = deflater.deflate(tmp);
+                outputStream.write(tmp, 0, size);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * {@code ImageUtil.decompress} as it was before codecs were introduced.
+     */
+    private static byte[] legacyDecompress(byte[] data) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
+        byte[] tmp = new byte[4 * 1024];
+        try {
+            while (!inflater.finished()) {
+                int count = inflater.inflate(tmp);
+                outputStream.write(tmp, 0, count);
+            }
+        } catch (Exception ignored) {
+        } finally {
+            inflater.end();
+        }
+        return outputStream.toByteArray();
+    }
+}
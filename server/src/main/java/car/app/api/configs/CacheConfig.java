@@ -0,0 +1,175 @@
+package car.app.api.configs;
+
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.service.CarInfoService;
+import car.app.api.service.CarModelsKey;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String CAR_MODELS = "carModels";
+    public static final String SEARCH_COUNTS = "searchCounts";
+    public static final String SEARCH_FACETS = "searchFacets";
+    public static final String POST_DETAILS = "postDetails";
+    public static final String USERS = "users";
+    public static final String FAVORITES = "favorites";
+    private static final List<Class<?>> CACHED_ENTITIES = List.of(Post.class, User.class);
+
+    @Value("${app.cache.car-models.maximum-size:500}")
+    private long carModelsMaximumSize;
+    @Value("${app.cache.car-models.expire-after-write:PT24H}")
+    private Duration carModelsExpireAfterWrite;
+    @Value("${app.cache.car-models.refresh-after-write:PT1H}")
+    private Duration carModelsRefreshAfterWrite;
+    @Value("${app.cache.search-counts.maximum-size:10000}")
+    private long searchCountsMaximumSize;
+    @Value("${app.cache.search-counts.expire-after-write:PT1M}")
+    private Duration searchCountsExpireAfterWrite;
+    @Value("${app.cache.search-facets.maximum-size:1000}")
+    private long searchFacetsMaximumSize;
+    @Value("${app.cache.search-facets.expire-after-write:PT10M}")
+    private Duration searchFacetsExpireAfterWrite;
+    @Value("${app.cache.users.maximum-size:10000}")
+    private long usersMaximumSize;
+    @Value("${app.cache.users.expire-after-write:PT5M}")
+    private Duration usersExpireAfterWrite;
+    @Value("${app.cache.favorites.maximum-size:10000}")
+    private long favoritesMaximumSize;
+    @Value("${app.cache.favorites.expire-after-write:PT10M}")
+    private Duration favoritesExpireAfterWrite;
+    @Value("${app.cache.posts.enabled:true}")
+    private boolean postsCacheEnabled;
+    @Value("${app.cache.posts.maximum-size:10000}")
+    private long postsMaximumSize;
+    @Value("${app.cache.posts.expire-after-write:PT30M}")
+    private Duration postsExpireAfterWrite;
+
+    /**
+     * Car models are served from a bounded cache. Entries older than the refresh interval are
+     * reloaded in the background on their next read while the stale value is still returned,
+     * so only a cold brand waits on the remote API.
+     * <p>
+     * Only the caches registered here exist, so every cache has a size bound; code asking for a
+     * cache that is switched off gets {@code null} back.
+     */
+    @Bean
+    public CacheManager cacheManager(ObjectProvider<CarInfoService> carInfoService, Environment environment) {
+        boolean virtualThreads = Threading.VIRTUAL.isActive(environment);
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(List.of());
+        registerLoadingCache(cacheManager, CAR_MODELS, Caffeine.newBuilder()
+                .maximumSize(carModelsMaximumSize)
+                .expireAfterWrite(carModelsExpireAfterWrite)
+                .refreshAfterWrite(carModelsRefreshAfterWrite)
+                .recordStats(), key -> {
+                    CarModelsKey carModelsKey = (CarModelsKey) key;
+                    return carInfoService.getObject().loadCarModels(carModelsKey.limit(), carModelsKey.offset(),
+                            carModelsKey.brand());
+                }, virtualThreads);
+        cacheManager.registerCustomCache(SEARCH_COUNTS, Caffeine.newBuilder()
+                .maximumSize(searchCountsMaximumSize)
+                .expireAfterWrite(searchCountsExpireAfterWrite)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(SEARCH_FACETS, Caffeine.newBuilder()
+                .maximumSize(searchFacetsMaximumSize)
+                .expireAfterWrite(searchFacetsExpireAfterWrite)
+                .recordStats()
+                .build());
+        registerLoadingCache(cacheManager, USERS, Caffeine.newBuilder()
+                .maximumSize(usersMaximumSize)
+                .expireAfterWrite(usersExpireAfterWrite)
+                .recordStats(), null, virtualThreads);
+        registerLoadingCache(cacheManager, FAVORITES, Caffeine.newBuilder()
+                .maximumSize(favoritesMaximumSize)
+                .expireAfterWrite(favoritesExpireAfterWrite)
+                .recordStats(), null, virtualThreads);
+        if (postsCacheEnabled) {
+            cacheManager.registerCustomCache(POST_DETAILS, Caffeine.newBuilder()
+                    .maximumSize(postsMaximumSize)
+                    .expireAfterWrite(postsExpireAfterWrite)
+                    .recordStats()
+                    .build());
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Registers a cache that is read with {@code @Cacheable(sync = true)}. A synchronous Caffeine load
+     * runs inside {@code ConcurrentHashMap.compute}, which holds a monitor and would pin a virtual
+     * thread's carrier for the whole query or remote call. With virtual threads the cache is built as
+     * an async cache instead, so each load runs on its own virtual thread and waiting callers unmount.
+     */
+    private static void registerLoadingCache(CaffeineCacheManager cacheManager, String name, Caffeine<Object, Object> builder,
+                                             CacheLoader<Object, Object> loader, boolean virtualThreads) {
+        if (virtualThreads) {
+            builder.executor(new VirtualThreadTaskExecutor(name + "-load-"));
+            cacheManager.registerCustomCache(name, loader != null ? builder.buildAsync(loader) : builder.buildAsync());
+        } else {
+            cacheManager.registerCustomCache(name, loader != null ? builder.build(loader) : builder.build());
+        }
+    }
+
+    /**
+     * Backs the Hibernate second-level cache for {@link Post} and {@link User} with one bounded
+     * Caffeine region per entity. Each application context gets its own manager so regions are not
+     * shared between contexts.
+     */
+    @Bean
+    public javax.cache.CacheManager entityCacheManager() {
+        javax.cache.CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("car-app-entities-" + System.identityHashCode(this)), getClass().getClassLoader());
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(postsMaximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(postsExpireAfterWrite.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        CACHED_ENTITIES.forEach(entity -> cacheManager.createCache(entity.getName(), configuration));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(javax.cache.CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, postsCacheEnabled);
+            if (postsCacheEnabled) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+                properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            }
+        };
+    }
+
+    /**
+     * Publishes hit and miss counts of the entity regions next to the Spring caches under {@code cache.*}.
+     */
+    @Bean
+    public MeterBinder entityCacheMetrics(javax.cache.CacheManager entityCacheManager) {
+        return registry -> CACHED_ENTITIES.forEach(entity ->
+                JCacheMetrics.monitor(registry, entityCacheManager.getCache(entity.getName())));
+    }
+}
@@ -1,5 +1,6 @@
 package car.app.api.configs;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -8,12 +9,19 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 @Configuration
 public class Configs {
+    @Value("${app.security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public LocalValidatorFactoryBean validatorFactoryBean() {
         return new LocalValidatorFactoryBean();
     }
+    /**
+     * The one password encoder of the application. Raising {@code app.security.password.bcrypt-strength}
+     * makes stored hashes of a lower cost count as outdated, and they are rehashed on the next login.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 }
@@ -0,0 +1,126 @@
+package car.app.api.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorConfig {
+    public static final String CAR_INFO_EXECUTOR = "carInfoExecutor";
+    public static final String PASSWORD_HASHING_EXECUTOR = "passwordHashingExecutor";
+    public static final String IMAGE_PROCESSING_EXECUTOR = "imageProcessingExecutor";
+
+    @Value("${app.task.executor.pool-size:16}")
+    private int applicationPoolSize;
+    @Value("${app.task.executor.queue-capacity:200}")
+    private int applicationQueueCapacity;
+    @Value("${app.car-info.executor.pool-size:16}")
+    private int carInfoPoolSize;
+    @Value("${app.car-info.executor.queue-capacity:200}")
+    private int carInfoQueueCapacity;
+    @Value("${app.security.password.executor.pool-size:4}")
+    private int passwordHashingPoolSize;
+    @Value("${app.security.password.executor.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+    @Value("${app.images.processing.executor.pool-size:2}")
+    private int imageProcessingPoolSize;
+    @Value("${app.images.processing.executor.queue-capacity:100}")
+    private int imageProcessingQueueCapacity;
+
+    /**
+     * Pool that Spring MVC runs asynchronous request handling on: streamed image bodies and the
+     * {@code CompletableFuture} responses of login and registration. Boot only creates its own
+     * executor under this name while the context has no other {@code Executor}, and the executors
+     * below would leave MVC on a {@code SimpleAsyncTaskExecutor} starting a thread per request, so it
+     * is declared here with a bounded pool and queue.
+     * <p>
+     * With {@code spring.threads.virtual.enabled} each task runs on its own virtual thread instead,
+     * and the pool size becomes a limit on tasks in flight; callers over the limit wait.
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("task-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(applicationPoolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(applicationPoolSize);
+        executor.setMaxPoolSize(applicationPoolSize);
+        executor.setQueueCapacity(applicationQueueCapacity);
+        executor.setThreadNamePrefix("task-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Shared pool for fetching car model pages from the remote API. Both the pool and its queue are
+     * bounded, so a burst of lookups is rejected instead of piling up threads. Its queue depth and
+     * activity are published as {@code executor.*} metrics tagged {@code name=carInfoExecutor}.
+     * <p>
+     * With {@code spring.threads.virtual.enabled} each page is fetched on its own virtual thread
+     * instead, and the pool size becomes a limit on fetches in flight; callers over the limit wait.
+     */
+    @Bean(name = CAR_INFO_EXECUTOR)
+    public AsyncTaskExecutor carInfoExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("car-info-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(carInfoPoolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(carInfoPoolSize);
+        executor.setMaxPoolSize(carInfoPoolSize);
+        executor.setQueueCapacity(carInfoQueueCapacity);
+        executor.setThreadNamePrefix("car-info-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool that runs password hashing for logins and registrations, kept apart from the request
+     * threads so that a burst of logins cannot take them all. When the queue is full new work is
+     * rejected, which is answered with 503 instead of waiting. Hashing keeps CPU busy rather than
+     * waiting on I/O, so this pool stays on platform threads when virtual threads are enabled.
+     */
+    @Bean(name = PASSWORD_HASHING_EXECUTOR)
+    public ThreadPoolTaskExecutor passwordHashingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(passwordHashingPoolSize);
+        executor.setMaxPoolSize(passwordHashingPoolSize);
+        executor.setQueueCapacity(passwordHashingQueueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool that renders uploaded images in the background. Decoding and scaling an image keeps a
+     * thread busy and holds the decoded pixels in memory, so the pool is small and stays on platform
+     * threads; its bounded queue is what uploads are refused against when it is full. On shutdown
+     * queued images are dropped, to be picked up by the next sweep, and images being rendered get to
+     * finish.
+     */
+    @Bean(name = IMAGE_PROCESSING_EXECUTOR)
+    public ThreadPoolTaskExecutor imageProcessingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(imageProcessingPoolSize);
+        executor.setMaxPoolSize(imageProcessingPoolSize);
+        executor.setQueueCapacity(imageProcessingQueueCapacity);
+        executor.setThreadNamePrefix("image-processing-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
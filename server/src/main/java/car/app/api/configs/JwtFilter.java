@@ -32,17 +32,15 @@ public class JwtFilter extends OncePerRequestFilter {
             final String authorizationHeader = request.getHeader("Authorization");
             final JwtUtils jwtUtils = ContextHelper.getApplicationContext().getBean(JwtUtils.class);
 
-            String username = null;
-
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
                 jwt = authorizationHeader.substring(7);
-                username = jwtUtils.getSubject(jwt);
             }
 
-            if (StringUtils.hasText(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User user = userService.getByUsername(username);
-
-                if (!JwtUtils.isTokenBlacklisted(jwt) && jwtUtils.validateToken(jwt)) {
+            if (jwt != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                VerifiedToken token = jwtUtils.verify(jwt);
+                jwtUtils.checkNotRevoked(token);
+                if (StringUtils.hasText(token.subject())) {
+                    User user = userService.getByUsername(token.subject());
                     UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                             user, null, user.getAuthorities());
                     authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
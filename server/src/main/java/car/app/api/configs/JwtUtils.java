@@ -1,9 +1,14 @@
 package car.app.api.configs;
 
+import car.app.api.service.auth.TokenRevocationStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,69 +16,126 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import javax.naming.AuthenticationException;
-import java.security.Key;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class JwtUtils {
+public class JwtUtils implements InitializingBean {
+    private final TokenRevocationStore tokenRevocationStore;
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
+    @Value("${application.security.jwt.verified-cache.enabled:false}")
+    private boolean verifiedCacheEnabled;
+    @Value("${application.security.jwt.verified-cache.maximum-size:10000}")
+    private long verifiedCacheMaximumSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * The key and parser are immutable and thread-safe, so they are built once and shared by every request.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        if (verifiedCacheEnabled) {
+            verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(verifiedCacheMaximumSize)
+                    .expireAfter(new UntilTokenExpiry())
+                    .build();
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, verified.expiration().getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 
     public String generateToken(UserDetails user) {
-        SecretKey key = Keys.hmacShaKeyFor(getSignInKey().getEncoded());
-        Claims claims = Jwts.claims().setSubject(user.getUsername());
+        Claims claims = Jwts.claims().setSubject(user.getUsername()).setId(UUID.randomUUID().toString());
         claims.put("roles", user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
         claims.put("username", user.getUsername());
         return Jwts.builder()
                 .setClaims(claims)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis()+jwtExpiration))
-                .signWith(key)
+                .signWith(signingKey)
                 .compact();
     }
 
-    public boolean validateToken(String token) {
-        return extractAllClaims(token).getExpiration().after(new Date());
-    }
-
-    public String getSubject(String token) {
-        return extractAllClaims(token).getSubject();
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Checks the signature and expiry of a token with a single parse and returns what the request
+     * needs from it. With {@code application.security.jwt.verified-cache.enabled} a verified token is
+     * remembered until it expires, so repeated requests with it skip the signature check.
+     *
+     * @throws JwtException if the token is malformed, wrongly signed or expired
+     */
+    public VerifiedToken verify(String token) {
+        if (verifiedTokens == null) {
+            return parse(token);
+        }
+        VerifiedToken verified = verifiedTokens.get(token, this::parse);
+        if (!verified.expiration().after(new Date())) {
+            verifiedTokens.invalidate(token);
+            throw new ExpiredJwtException(null, null, "JWT expired at " + verified.expiration());
+        }
+        return verified;
     }
 
-    private static final Set<String> blacklistedTokens = new HashSet<>();
-
-    public static void blacklistToken(String token) {
-        blacklistedTokens.add(token);
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("JWT has no expiration");
+        }
+        List<?> roles = claims.get("roles", List.class);
+        // Tokens issued before they carried an id are identified by their signature.
+        String id = claims.getId() != null ? claims.getId() : token.substring(token.lastIndexOf('.') + 1);
+        return new VerifiedToken(id, claims.getSubject(),
+                roles != null ? roles.stream().map(String::valueOf).toList() : List.of(),
+                claims.getExpiration());
     }
 
-    public static boolean isTokenBlacklisted(String token) throws AuthenticationException {
-        if(blacklistedTokens.contains(token)) {
+    /**
+     * @throws AuthenticationException if the token was revoked by a logout
+     */
+    public void checkNotRevoked(VerifiedToken token) throws AuthenticationException {
+        if (tokenRevocationStore.isRevoked(token.id())) {
             throw new AuthenticationException("User is not logged in");
         }
-        return false;
     }
 
+    /**
+     * Revokes the token until it expires. Tokens that no longer verify cannot be used anyway and are ignored.
+     */
     public void handleLogout(String jwt) {
-        JwtUtils.blacklistToken(jwt);
+        if (jwt == null) {
+            return;
+        }
+        try {
+            VerifiedToken token = verify(jwt);
+            tokenRevocationStore.revoke(token.id(), token.expiration().toInstant());
+        } catch (JwtException e) {
+            // nothing to revoke
+        }
     }
 }
@@ -0,0 +1,19 @@
+package car.app.api.configs;
+
+import car.app.api.migration.PostNumericColumnsMigration;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MigrationConfig {
+
+    /**
+     * Schema migrations that change existing columns have to run before Hibernate validates and
+     * updates the schema.
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor schemaMigrationsBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor(PostNumericColumnsMigration.class);
+    }
+}
@@ -0,0 +1,11 @@
+package car.app.api.configs;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * What a request needs from a token whose signature and expiry have been checked. The id is the
+ * token's {@code jti}, used to revoke it.
+ */
+public record VerifiedToken(String id, String subject, List<String> roles, Date expiration) {
+}
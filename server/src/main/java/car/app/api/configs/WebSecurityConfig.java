@@ -35,6 +35,7 @@ public class WebSecurityConfig extends SecurityConfigurerAdapter<DefaultSecurity
 		DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
 		authProvider.setUserDetailsService(userDetailsService());
 		authProvider.setPasswordEncoder(passwordEncoder);
+		authProvider.setUserDetailsPasswordService(userService::updatePassword);
 		return authProvider;
 	}
 
@@ -2,6 +2,7 @@ package car.app.api.controller;
 
 import car.app.api.configs.JwtUtils;
 import car.app.api.controller.model.*;
+import car.app.api.exceptions.ServiceBusyException;
 import car.app.api.exceptions.UserNotFoundException;
 import car.app.api.exceptions.UsernameAlreadyExists;
 import car.app.api.service.UserService;
@@ -14,7 +15,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import javax.naming.AuthenticationException;
 import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @SecurityRequirement(name = "Bearer Authentication")
@@ -28,13 +31,13 @@ public class AuthController {
     private final JwtUtils jwtUtils;
 
     @PostMapping(value = "/authenticate")
-    public ResponseEntity<AuthUserResponse> createAuthenticationToken(@Valid @RequestBody AuthUserRequest authenticationRequest, BindingResult result) throws UsernameAlreadyExists {
-        return ResponseEntity.ok(authenticationService.authenticate(authenticationRequest, result));
+    public CompletableFuture<ResponseEntity<AuthUserResponse>> createAuthenticationToken(@Valid @RequestBody AuthUserRequest authenticationRequest, BindingResult result) throws UsernameAlreadyExists, ServiceBusyException {
+        return authenticationService.authenticate(authenticationRequest, result).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/register")
-    public ResponseEntity<UserResponse> registerUser(@Valid @RequestBody UserRequest userRequest, BindingResult result) throws UsernameAlreadyExists {
-        return ResponseEntity.ok(userService.save(userRequest, result));
+    public CompletableFuture<ResponseEntity<UserResponse>> registerUser(@Valid @RequestBody UserRequest userRequest, BindingResult result) throws UsernameAlreadyExists, ServiceBusyException {
+        return userService.save(userRequest, result).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/logout")
@@ -44,7 +47,7 @@ public class AuthController {
     }
 
     @GetMapping()
-    public ResponseEntity<GetUserResponse> get() throws UserNotFoundException {
+    public ResponseEntity<GetUserResponse> get() throws UserNotFoundException, AuthenticationException {
         return ResponseEntity.ok(userService.get());
     }
 
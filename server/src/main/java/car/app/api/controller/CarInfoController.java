@@ -3,6 +3,7 @@ package car.app.api.controller;
 import car.app.api.controller.model.CarBrands;
 import car.app.api.controller.model.CarModels;
 import car.app.api.controller.model.CarTypes;
+import car.app.api.service.CarCatalogService;
 import car.app.api.service.CarInfoService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
@@ -19,19 +20,21 @@ import org.springframework.web.bind.annotation.*;
 public class CarInfoController {
 
     private final CarInfoService carInfoService;
+    private final CarCatalogService carCatalogService;
 
     @GetMapping("/models")
     public ResponseEntity<CarModels> getCarModels(
             @RequestParam(name = "limit", defaultValue = "100") String limit,
             @RequestParam(name = "offset", defaultValue = "0") String offset,
-            @RequestParam(name = "brand") String brand
+            @RequestParam(name = "brand") String brand,
+            @RequestParam(name = "prefix", required = false) String prefix
     ) throws Exception {
-        return ResponseEntity.ok(carInfoService.getCarModels(limit, offset, brand));
+        return ResponseEntity.ok(carCatalogService.getCarModels(limit, offset, brand, prefix));
     }
 
     @GetMapping("/brands")
-    public ResponseEntity<CarBrands> getCarBrands(){
-        return ResponseEntity.ok(carInfoService.getCarBrands());
+    public ResponseEntity<CarBrands> getCarBrands(@RequestParam(name = "prefix", required = false) String prefix){
+        return ResponseEntity.ok(carCatalogService.getCarBrands(prefix));
     }
 
     @GetMapping("/types")
@@ -7,6 +7,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import javax.naming.AuthenticationException;
 
@@ -44,6 +45,26 @@ public class ExceptionController {
         return buildResponseEntity(new ApiError(HttpStatus.CONFLICT,ex.getMessage()));
     }
 
+    @ExceptionHandler(ImageNotFoundException.class)
+    public ResponseEntity<ApiError> handleImageNotFoundException(ImageNotFoundException ex) {
+        return buildResponseEntity(new ApiError(HttpStatus.NOT_FOUND,ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiError> handleInvalidCursorException(InvalidCursorException ex) {
+        return buildResponseEntity(new ApiError(HttpStatus.BAD_REQUEST,ex.getMessage()));
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<ApiError> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException ex) {
+        return buildResponseEntity(new ApiError(HttpStatus.PAYLOAD_TOO_LARGE,ex.getMessage()));
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiError> handleServiceBusyException(ServiceBusyException ex) {
+        return buildResponseEntity(new ApiError(HttpStatus.SERVICE_UNAVAILABLE,ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGeneralException(Exception ex) {
         return buildResponseEntity(new ApiError(HttpStatus.INTERNAL_SERVER_ERROR,ex.getMessage()));
@@ -42,12 +42,14 @@ public class FavoritesController {
     }
 
     @PostMapping("/add/{postId}")
-    public ResponseEntity<FavoritesResponse> add(@PathVariable(name = "postId") String postId) throws FavoritesCustomException {
+    public ResponseEntity<FavoritesResponse> add(@PathVariable(name = "postId") String postId)
+            throws FavoritesCustomException, UserNotFoundException, AuthenticationException {
             return ResponseEntity.ok(favoritesService.add(postId));
     }
 
     @DeleteMapping("/remove/{postId}")
-    public ResponseEntity<Void> remove(@PathVariable(name = "postId") String postId) throws FavoritesCustomException {
+    public ResponseEntity<Void> remove(@PathVariable(name = "postId") String postId)
+            throws FavoritesCustomException, UserNotFoundException, AuthenticationException {
             favoritesService.remove(postId);
             return ResponseEntity.ok().build();
     }
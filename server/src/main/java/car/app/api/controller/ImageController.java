@@ -0,0 +1,163 @@
+package car.app.api.controller;
+
+import car.app.api.controller.model.ImageDetails;
+import car.app.api.controller.model.ImageStatusResponse;
+import car.app.api.enums.ImageSize;
+import car.app.api.exceptions.ImageCustomException;
+import car.app.api.exceptions.ImageNotFoundException;
+import car.app.api.exceptions.ServiceBusyException;
+import car.app.api.exceptions.UserNotFoundException;
+import car.app.api.service.ImageContent;
+import car.app.api.service.ImageUploadService;
+import car.app.api.service.UserService;
+import car.app.api.utils.ImageFormat;
+import car.app.api.utils.ImageUtil;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.naming.AuthenticationException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@SecurityRequirement(name = "Bearer Authentication")
+@CrossOrigin("*")
+@RequestMapping("/api/images")
+@RequiredArgsConstructor
+@PreAuthorize("permitAll()")
+public class ImageController {
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    private final ImageUploadService imageUploadService;
+    private final UserService userService;
+
+    /**
+     * First step of creating a post with images: uploads the images as multipart parts and returns
+     * their ids, which the post then lists in {@code imageIds}. Part and request sizes are limited by
+     * {@code spring.servlet.multipart.max-file-size} and {@code max-request-size}. The images are
+     * accepted before they are resized; {@code /{id}/status} tells when their sizes are ready.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<ImageDetails>> upload(@RequestParam(name = "images") List<MultipartFile> images)
+            throws UserNotFoundException, AuthenticationException, ImageCustomException, ServiceBusyException {
+        return ResponseEntity.accepted().body(imageUploadService.uploadImages(images, userService.getAuthenticatedUser()));
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<ImageStatusResponse> status(@PathVariable(name = "id") String id) throws ImageNotFoundException {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(imageUploadService.getProcessingStatus(id));
+    }
+
+    @GetMapping("/{id}/sizes/{size}")
+    public ResponseEntity<byte[]> size(@PathVariable(name = "id") String id, @PathVariable(name = "size") String size)
+            throws ImageNotFoundException {
+        ImageSize imageSize = Arrays.stream(ImageSize.values())
+                .filter(value -> value.name().equalsIgnoreCase(size))
+                .findFirst()
+                .orElse(null);
+        if (imageSize == null) {
+            return ResponseEntity.notFound().build();
+        }
+        byte[] content = imageUploadService.getDerivative(id, imageSize);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(IMMUTABLE)
+                .eTag(ImageUtil.sha256Hex(content))
+                .body(content);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StreamingResponseBody> get(
+            @PathVariable(name = "id") String id,
+            @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(name = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            WebRequest webRequest
+    ) throws ImageNotFoundException {
+        ImageContent image = imageUploadService.getImageContent(id);
+        String eTag = "\"" + image.getContentHash() + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        long length = image.getContentLength();
+        if (range == null || length == 0 || (ifRange != null && !ifRange.equals(eTag))) {
+            return stream(HttpStatus.OK, image, eTag, 0, length - 1);
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(length);
+        }
+        if (ranges.size() != 1) {
+            return stream(HttpStatus.OK, image, eTag, 0, length - 1);
+        }
+        long start;
+        long end;
+        try {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(length);
+        }
+        if (start > end) {
+            return rangeNotSatisfiable(length);
+        }
+        return stream(HttpStatus.PARTIAL_CONTENT, image, eTag, start, end);
+    }
+
+    /**
+     * Answers 202 without a body while the image waits for the pipeline, marked {@code no-cache} so
+     * the thumbnail is fetched once it exists. A thumbnail that exists never changes.
+     */
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<byte[]> thumbnail(@PathVariable(name = "id") String id) throws ImageNotFoundException {
+        Optional<byte[]> thumbnail = imageUploadService.getThumbnail(id);
+        if (thumbnail.isEmpty()) {
+            return ResponseEntity.accepted().cacheControl(CacheControl.noCache()).build();
+        }
+        byte[] content = thumbnail.get();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ImageFormat.detect(content).getMediaType()))
+                .cacheControl(IMMUTABLE)
+                .eTag(ImageUtil.sha256Hex(content))
+                .body(content);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(HttpStatus status, ImageContent image, String eTag, long start, long end) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status)
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .contentLength(end - start + 1)
+                .cacheControl(IMMUTABLE)
+                .eTag(eTag)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + image.getContentLength());
+        }
+        if (end < start) {
+            return builder.build();
+        }
+        return builder.body(outputStream -> imageUploadService.writeImage(image, outputStream, start, end));
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                .build();
+    }
+}
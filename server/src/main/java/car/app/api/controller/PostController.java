@@ -4,6 +4,8 @@ import car.app.api.controller.model.*;
 import car.app.api.exceptions.BindingException;
 import car.app.api.exceptions.PostCustomException;
 import car.app.api.exceptions.ImageCustomException;
+import car.app.api.exceptions.ServiceBusyException;
+import car.app.api.exceptions.InvalidCursorException;
 import car.app.api.exceptions.UserNotFoundException;
 import car.app.api.service.PostService;
 import car.app.api.service.UserService;
@@ -31,7 +33,7 @@ public class PostController {
     @PostMapping("/create")
     public ResponseEntity<PostResponse> create(
             @Valid @RequestBody PostRequest postRequest, BindingResult result
-    ) throws UserNotFoundException, AuthenticationException, BindingException, ImageCustomException {
+    ) throws UserNotFoundException, AuthenticationException, BindingException, ImageCustomException, ServiceBusyException {
             return ResponseEntity.ok(postService.save(postRequest, userService.getAuthenticatedUser(), postRequest.getImageUrls(), result));
     }
 
@@ -52,9 +54,33 @@ public class PostController {
     public ResponseEntity<Page<PostDetails>> search(
             @RequestBody SearchBuilderRequest searchBuilderRequest,
             @RequestParam(name = "page", defaultValue = "0") Integer page,
+            @RequestParam(name = "size", defaultValue = "20") Integer size,
+            @RequestParam(name = "count", defaultValue = "true") boolean count
+    ) {
+            return ResponseEntity.ok(postService.search(searchBuilderRequest, page, size, count));
+    }
+
+    @PostMapping("/search/facets")
+    public ResponseEntity<SearchFacets> facets(@RequestBody(required = false) SearchBuilderRequest searchBuilderRequest) {
+            return ResponseEntity.ok(postService.getFacets(searchBuilderRequest));
+    }
+
+    @GetMapping("/search/text")
+    public ResponseEntity<Page<PostDetails>> searchText(
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "page", defaultValue = "0") Integer page,
             @RequestParam(name = "size", defaultValue = "20") Integer size
     ) {
-            return ResponseEntity.ok(postService.search(searchBuilderRequest, page, size));
+            return ResponseEntity.ok(postService.searchText(query, page, size));
+    }
+
+    @PostMapping("/search/keyset")
+    public ResponseEntity<CursorPage<PostDetails>> searchKeyset(
+            @RequestBody(required = false) SearchBuilderRequest searchBuilderRequest,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "20") Integer size
+    ) throws InvalidCursorException {
+            return ResponseEntity.ok(postService.searchAfter(searchBuilderRequest, cursor, size));
     }
 
     @GetMapping("/user")
@@ -8,6 +8,7 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import lombok.Data;
 import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
 import java.util.List;
 
 @Data
@@ -23,11 +24,11 @@ public class EditPostRequest {
     private String model;
     private String color;
     private Transmission transmission;
-    private String kilometers;
+    private Integer kilometers;
     private Fuel fuel;
-    private String power;
-    private String price;
-    private String firstRegistration;
-    private String engineSize;
+    private Integer power;
+    private BigDecimal price;
+    private Integer firstRegistration;
+    private BigDecimal engineSize;
     private List<String> imageUrls;
 }
@@ -4,6 +4,7 @@ import car.app.api.enums.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -21,13 +22,13 @@ public class FavoriteDetails {
     private String model;
     private String color;
     private Transmission transmission;
-    private String kilometers;
+    private Integer kilometers;
     private Fuel fuel;
-    private String power;
-    private String price;
-    private String firstRegistration;
-    private String engineSize;
+    private Integer power;
+    private BigDecimal price;
+    private Integer firstRegistration;
+    private BigDecimal engineSize;
     private LocalDateTime createdAt;
     private LocalDateTime modifiedAt;
-    private List<String> images;
+    private List<ImageDetails> images;
 }
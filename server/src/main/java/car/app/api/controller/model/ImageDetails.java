@@ -0,0 +1,12 @@
+package car.app.api.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImageDetails {
+    private String id;
+    private String url;
+    private String thumbnailUrl;
+}
@@ -0,0 +1,19 @@
+package car.app.api.controller.model;
+
+import car.app.api.enums.ImageStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class ImageStatusResponse {
+    private String id;
+    private ImageStatus status;
+    private int attempts;
+    private String error;
+    private Integer width;
+    private Integer height;
+    private Map<String, String> sizes;
+}
@@ -3,6 +3,8 @@ package car.app.api.controller.model;
 import car.app.api.enums.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.With;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -20,13 +22,18 @@ public class PostDetails {
     private String model;
     private String color;
     private Transmission transmission;
-    private String kilometers;
+    private Integer kilometers;
     private Fuel fuel;
-    private String power;
-    private String price;
-    private String firstRegistration;
-    private String engineSize;
+    private Integer power;
+    private BigDecimal price;
+    private Integer firstRegistration;
+    private BigDecimal engineSize;
     private LocalDateTime createdAt;
     private LocalDateTime modifiedAt;
-    private List<String> images;
+    private List<ImageDetails> images;
+    /**
+     * Whether the post is a favorite of the user asking, filled in per request.
+     */
+    @With
+    private boolean favorite;
 }
@@ -10,6 +10,7 @@ import jakarta.persistence.Enumerated;
 import lombok.Data;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
 import java.util.List;
 
 @Data
@@ -34,17 +35,18 @@ public class PostRequest {
     private String color;
     @NotEmpty(message = "Transmission must not be empty")
     private Transmission transmission;
-    @NotEmpty(message = "Kilometers must not be empty")
-    private String kilometers;
+    @NotNull(message = "Kilometers must not be empty")
+    private Integer kilometers;
     @NotEmpty(message = "Fuel must not be empty")
     private Fuel fuel;
-    @NotEmpty(message = "Power must not be empty")
-    private String power;
-    @NotEmpty(message = "Price must not be empty")
-    private String price;
-    @NotEmpty(message = "First registration must not be empty")
-    private String firstRegistration;
-    @NotEmpty(message = "Engine size must not be empty")
-    private String engineSize;
+    @NotNull(message = "Power must not be empty")
+    private Integer power;
+    @NotNull(message = "Price must not be empty")
+    private BigDecimal price;
+    @NotNull(message = "First registration must not be empty")
+    private Integer firstRegistration;
+    @NotNull(message = "Engine size must not be empty")
+    private BigDecimal engineSize;
     private List<String> imageUrls;
+    private List<String> imageIds;
 }
@@ -5,6 +5,8 @@ import car.app.api.enums.PostType;
 import car.app.api.enums.Transmission;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 public class SearchBuilderRequest {
     private PostType postType;
@@ -13,13 +15,13 @@ public class SearchBuilderRequest {
     private String model;
     private String color;
     private Transmission transmission;
-    private String kilometers;
+    private Integer kilometers;
     private Fuel fuel;
-    private String power;
-    private String lowestPrice;
-    private String highestPrice;
-    private String firstRegistration;
-    private String engineSize;
-    private String fromYear;
-    private String toYear;
+    private Integer power;
+    private BigDecimal lowestPrice;
+    private BigDecimal highestPrice;
+    private Integer firstRegistration;
+    private BigDecimal engineSize;
+    private Integer fromYear;
+    private Integer toYear;
 }
@@ -0,0 +1,15 @@
+package car.app.api.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class SearchFacets {
+    private Map<String, Long> brands;
+    private Map<String, Long> fuels;
+    private Map<String, Long> transmissions;
+    private Map<String, Long> priceRanges;
+}
@@ -0,0 +1,7 @@
+package car.app.api.exceptions;
+
+public class ImageNotFoundException extends Exception {
+    public ImageNotFoundException(String msg) {
+        super(msg);
+    }
+}
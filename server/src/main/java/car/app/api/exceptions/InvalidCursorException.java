@@ -0,0 +1,7 @@
+package car.app.api.exceptions;
+
+public class InvalidCursorException extends Exception {
+    public InvalidCursorException(String msg) {
+        super(msg);
+    }
+}
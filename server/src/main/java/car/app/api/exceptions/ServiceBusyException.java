@@ -0,0 +1,7 @@
+package car.app.api.exceptions;
+
+public class ServiceBusyException extends Exception {
+    public ServiceBusyException(String msg) {
+        super(msg);
+    }
+}
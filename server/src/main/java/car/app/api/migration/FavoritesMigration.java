@@ -0,0 +1,62 @@
+package car.app.api.migration;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves the favorites older versions kept in the {@code post.is_favorite} flag into
+ * {@code favorites}. The flag was shared by everybody and only listed to the post's author, so each
+ * flagged post becomes a favorite of its author. The column is dropped afterwards, which makes later
+ * starts a no-op; favorites that exist already are skipped, so an interrupted run can be repeated.
+ * <p>
+ * Runs once the application has started, after Hibernate created the {@code favorites} table.
+ */
+@Component
+@RequiredArgsConstructor
+public class FavoritesMigration implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(FavoritesMigration.class);
+    private static final String TABLE = "post";
+    private static final String COLUMN = "is_favorite";
+
+    private final DataSource dataSource;
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        if (!hasColumn()) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<Object[]> favorites = jdbcTemplate.query("select p.user_id, p.id from post p where p.is_favorite = true "
+                        + "and p.user_id is not null and not exists "
+                        + "(select 1 from favorites f where f.user_id = p.user_id and f.post_id = p.id)",
+                (resultSet, rowNum) -> new Object[]{UUID.randomUUID().toString(), resultSet.getString(1),
+                        resultSet.getString(2), Timestamp.valueOf(LocalDateTime.now())});
+        logger.info("Moving {} favorites from {}.{} to favorites", favorites.size(), TABLE, COLUMN);
+        jdbcTemplate.batchUpdate("insert into favorites (id, user_id, post_id, created_at) values (?, ?, ?, ?)", favorites);
+        jdbcTemplate.execute("alter table " + TABLE + " drop column " + COLUMN);
+    }
+
+    private boolean hasColumn() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), TABLE, COLUMN)) {
+                return columns.next();
+            }
+        }
+    }
+}
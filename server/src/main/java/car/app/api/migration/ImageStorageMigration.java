@@ -0,0 +1,95 @@
+package car.app.api.migration;
+
+import car.app.api.entities.ImageUpload;
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.projection.StoredImage;
+import car.app.api.storage.ImageStore;
+import car.app.api.storage.ImageStores;
+import car.app.api.utils.ImageFormat;
+import car.app.api.utils.ImageUtil;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves images written by another backend into the configured {@code app.images.storage.type}, and
+ * images that still hold their own bytes into shared blobs, so equal images end up stored once.
+ * Start the server once with {@code --app.images.storage.migrate=true} to run it; rows that were
+ * already moved are skipped, so it can be re-run after a failure.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.images.storage.migrate", havingValue = "true")
+public class ImageStorageMigration implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ImageStorageMigration.class);
+
+    private final ImageUploadRepository imageUploadRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStores imageStores;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${app.images.storage.migrate.batch-size:100}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ImageStore target = imageStores.current();
+        logger.info("Migrating images to {} storage", target.getStorage());
+        int migrated = 0;
+        int failed = 0;
+        String afterId = "";
+        List<String> ids;
+        do {
+            ids = imageUploadRepository.findIdsToMigrate(target.getStorage(), afterId, PageRequest.of(0, batchSize));
+            for (String id : ids) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> migrate(id, target));
+                    migrated++;
+                } catch (RuntimeException e) {
+                    failed++;
+                    logger.error("Could not migrate image {}", id, e);
+                }
+                afterId = id;
+            }
+            logger.info("Migrated {} images so far", migrated);
+        } while (ids.size() == batchSize);
+        logger.info("Image migration finished: {} migrated, {} failed", migrated, failed);
+    }
+
+    private void migrate(String id, ImageStore target) {
+        StoredImage storedImage = imageUploadRepository.findStoredImageById(id).orElseThrow();
+        ImageUpload imageUpload = imageUploadRepository.findById(id).orElseThrow();
+        try (InputStream inputStream = imageStores.get(storedImage.getStorage()).openStream(storedImage)) {
+            byte[] content = inputStream.readAllBytes();
+            if (imageUpload.getContentHash() == null) {
+                imageUpload.setContentType(ImageFormat.detect(content).getMediaType());
+                imageUpload.setContentHash(ImageUtil.sha256Hex(content));
+                imageUpload.setContentLength((long) content.length);
+            }
+            if (imageBlobRepository.existsByContentHashAndStorage(imageUpload.getContentHash(), target.getStorage())) {
+                imageUpload.storeProfileImage(null);
+                imageUpload.setStorage(target.getStorage());
+            } else {
+                imageBlobRepository.save(target.write(imageUpload, content));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        imageUploadRepository.save(imageUpload);
+        imageBlobRepository.recountReferences(imageUpload.getContentHash());
+        imageBlobRepository.updateUnreferencedAt(imageUpload.getContentHash(), LocalDateTime.now());
+    }
+}
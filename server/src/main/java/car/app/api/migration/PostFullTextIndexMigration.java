@@ -0,0 +1,59 @@
+package car.app.api.migration;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Creates the FULLTEXT index used by the post text search on MySQL. JPA cannot declare FULLTEXT
+ * indexes, so it is added once Hibernate has created the table, before the web server starts
+ * taking requests; later starts find it and do nothing. Other databases have no FULLTEXT index
+ * and search falls back to LIKE.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostFullTextIndexMigration implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(PostFullTextIndexMigration.class);
+    private static final String INDEX_NAME = "ft_post_text";
+
+    private final DataSource dataSource;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            if (!isMySql(dataSource) || exists(dataSource)) {
+                return;
+            }
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not read the database metadata", e);
+        }
+        logger.info("Creating FULLTEXT index {} on post", INDEX_NAME);
+        new JdbcTemplate(dataSource).execute("alter table post add fulltext index " + INDEX_NAME + " (title, description, brand, model)");
+    }
+
+    /**
+     * Tells whether the database has the FULLTEXT index the ranked text search runs on. Always
+     * false on databases other than MySQL.
+     */
+    public static boolean exists(DataSource dataSource) throws MetaDataAccessException {
+        if (!isMySql(dataSource)) {
+            return false;
+        }
+        Integer existing = new JdbcTemplate(dataSource).queryForObject("select count(*) from information_schema.statistics "
+                + "where table_schema = database() and table_name = 'post' and index_name = ?", Integer.class, INDEX_NAME);
+        return existing != null && existing > 0;
+    }
+
+    private static boolean isMySql(DataSource dataSource) throws MetaDataAccessException {
+        String productName = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        return "MySQL".equalsIgnoreCase(productName);
+    }
+}
@@ -0,0 +1,85 @@
+package car.app.api.migration;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Converts the numeric columns of {@code post} that older versions stored as text. Values are
+ * cleaned up first (units and thousands separators stripped, the year pulled out of the registration date)
+ * and anything that still does not parse becomes NULL, then the column type is changed.
+ * <p>
+ * Runs before the JPA entity manager starts, so Hibernate sees the converted schema. Columns that
+ * are numeric already are skipped, which makes it a no-op on new databases and on every later start.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostNumericColumnsMigration implements InitializingBean {
+    private static final Logger logger = LoggerFactory.getLogger(PostNumericColumnsMigration.class);
+    private static final String TABLE = "post";
+
+    private record Conversion(String column, List<String> cleanups, String type) {
+    }
+
+    private static final List<Conversion> CONVERSIONS = List.of(
+            new Conversion("price", List.of(
+                    "update post set price = regexp_replace(price, '[^0-9.,]', '')",
+                    "update post set price = nullif(replace(regexp_replace(price, '[.,](?=[0-9]{3}([.,]|$))', ''), ',', '.'), '')",
+                    "update post set price = null where price not regexp '^[0-9]{1,10}([.][0-9]{1,2})?$'"),
+                    "decimal(12,2)"),
+            new Conversion("kilometers", List.of(
+                    "update post set kilometers = nullif(regexp_replace(kilometers, '[^0-9]', ''), '')",
+                    "update post set kilometers = null where length(kilometers) > 9"),
+                    "int"),
+            new Conversion("power", List.of(
+                    "update post set power = nullif(regexp_replace(power, '[^0-9]', ''), '')",
+                    "update post set power = null where length(power) > 9"),
+                    "int"),
+            new Conversion("engine_size", List.of(
+                    "update post set engine_size = nullif(regexp_replace(replace(engine_size, ',', '.'), '[^0-9.]', ''), '')",
+                    "update post set engine_size = null where engine_size not regexp '^[0-9]{1,6}([.][0-9]+)?$'"),
+                    "decimal(7,1)"),
+            new Conversion("first_registration", List.of(
+                    "update post set first_registration = regexp_substr(first_registration, '(19|20)[0-9]{2}')"),
+                    "int")
+    );
+
+    private final DataSource dataSource;
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (Conversion conversion : CONVERSIONS) {
+            if (!isTextColumn(conversion.column())) {
+                continue;
+            }
+            logger.info("Converting {}.{} to {}", TABLE, conversion.column(), conversion.type());
+            conversion.cleanups().forEach(jdbcTemplate::update);
+            jdbcTemplate.execute("alter table " + TABLE + " modify " + conversion.column() + " " + conversion.type());
+        }
+    }
+
+    private boolean isTextColumn(String column) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), TABLE, column)) {
+                if (!columns.next()) {
+                    return false;
+                }
+                int type = columns.getInt("DATA_TYPE");
+                return type == Types.VARCHAR || type == Types.CHAR || type == Types.LONGVARCHAR;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package car.app.api.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Immutable in-memory view of the car catalog. Names are keyed by their lower-cased form in sorted
+ * maps, so exact lookups are case-insensitive and prefix lookups are a single sub-map range.
+ * Updates produce a new index and leave the current one untouched for concurrent readers.
+ */
+final class CarCatalogIndex {
+    static final CarCatalogIndex EMPTY = new CarCatalogIndex(new TreeMap<>(), Map.of());
+
+    private final NavigableMap<String, String> brands;
+    private final Map<String, NavigableMap<String, String>> modelsByBrand;
+
+    private CarCatalogIndex(NavigableMap<String, String> brands, Map<String, NavigableMap<String, String>> modelsByBrand) {
+        this.brands = brands;
+        this.modelsByBrand = modelsByBrand;
+    }
+
+    static CarCatalogIndex of(Collection<String> brandNames, Map<String, ? extends Collection<String>> models) {
+        NavigableMap<String, String> brands = new TreeMap<>();
+        brandNames.forEach(brand -> brands.put(key(brand), brand));
+        Map<String, NavigableMap<String, String>> modelsByBrand = new HashMap<>();
+        models.forEach((brand, brandModels) -> modelsByBrand.put(key(brand), index(brandModels)));
+        return new CarCatalogIndex(brands, modelsByBrand);
+    }
+
+    CarCatalogIndex withBrand(String brand, Collection<String> models) {
+        NavigableMap<String, String> brands = new TreeMap<>(this.brands);
+        brands.putIfAbsent(key(brand), brand);
+        Map<String, NavigableMap<String, String>> modelsByBrand = new HashMap<>(this.modelsByBrand);
+        modelsByBrand.put(key(brand), index(models));
+        return new CarCatalogIndex(brands, modelsByBrand);
+    }
+
+    List<String> brands(String prefix, int limit) {
+        return matching(brands, prefix, limit);
+    }
+
+    /**
+     * The catalog's spelling of the brand, or the given name when the brand is not in the catalog.
+     */
+    String brandName(String brand) {
+        return brands.getOrDefault(key(brand), brand);
+    }
+
+    /**
+     * Models of the brand, or an empty list when the catalog holds none for it yet.
+     */
+    List<String> models(String brand, String prefix, int limit) {
+        NavigableMap<String, String> models = modelsByBrand.get(key(brand));
+        return models != null ? matching(models, prefix, limit) : List.of();
+    }
+
+    boolean hasModels(String brand) {
+        NavigableMap<String, String> models = modelsByBrand.get(key(brand));
+        return models != null && !models.isEmpty();
+    }
+
+    private static List<String> matching(NavigableMap<String, String> names, String prefix, int limit) {
+        Collection<String> values = prefix == null || prefix.isEmpty()
+                ? names.values()
+                : names.subMap(key(prefix), true, key(prefix) + Character.MAX_VALUE, true).values();
+        Stream<String> stream = values.stream();
+        return (limit > 0 ? stream.limit(limit) : stream).toList();
+    }
+
+    private static NavigableMap<String, String> index(Collection<String> names) {
+        NavigableMap<String, String> index = new TreeMap<>();
+        names.forEach(name -> index.putIfAbsent(key(name), name));
+        return Collections.unmodifiableNavigableMap(index);
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
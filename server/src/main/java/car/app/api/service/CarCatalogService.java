@@ -0,0 +1,193 @@
+package car.app.api.service;
+
+import car.app.api.controller.model.CarBrands;
+import car.app.api.controller.model.CarModels;
+import car.app.api.entities.CarCatalogBrand;
+import car.app.api.entities.CarCatalogModel;
+import car.app.api.repository.CarCatalogBrandRepository;
+import car.app.api.repository.CarCatalogModelRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Answers brand and model lookups from the local car catalog. The catalog is persisted in the
+ * {@code car_catalog_*} tables, kept fresh by {@link CarCatalogSync} and served from an in-memory
+ * {@link CarCatalogIndex}. Brands without models in the catalog fall back to the remote API, and
+ * the full model list fetched that way is added to the catalog.
+ */
+@Service
+@RequiredArgsConstructor
+public class CarCatalogService {
+    private static final Logger logger = LoggerFactory.getLogger(CarCatalogService.class);
+    private static final int SUGGESTION_LIMIT = 20;
+    private static final int BRAND_LOCKS = 64;
+    static final List<String> DEFAULT_BRANDS = List.of(
+            "Abarth",
+            "Alfa Romeo",
+            "Aston Martin",
+            "Audi",
+            "Bentley",
+            "BMW",
+            "Bugatti",
+            "Cadillac",
+            "Chevrolet",
+            "Chrysler",
+            "Citroën",
+            "Dacia",
+            "Daewoo",
+            "Daihatsu",
+            "Dodge",
+            "Donkervoort",
+            "DS",
+            "Ferrari",
+            "Fiat",
+            "Fisker",
+            "Ford",
+            "Honda",
+            "Hummer",
+            "Hyundai",
+            "Infiniti",
+            "Iveco",
+            "Jaguar",
+            "Jeep",
+            "Kia",
+            "KTM",
+            "Lada",
+            "Lamborghini",
+            "Lancia",
+            "Land Rover",
+            "Landwind",
+            "Lexus",
+            "Lotus",
+            "Maserati",
+            "Maybach",
+            "Mazda",
+            "McLaren",
+            "Mercedes-Benz",
+            "MG",
+            "Mini",
+            "Mitsubishi",
+            "Morgan",
+            "Nissan",
+            "Opel",
+            "Peugeot",
+            "Porsche",
+            "Renault",
+            "Rolls-Royce",
+            "Rover",
+            "Saab",
+            "Seat",
+            "Skoda",
+            "Smart",
+            "SsangYong",
+            "Subaru",
+            "Suzuki",
+            "Tesla",
+            "Toyota",
+            "Volkswagen",
+            "Volvo"
+    );
+
+    private final CarCatalogBrandRepository carCatalogBrandRepository;
+    private final CarCatalogModelRepository carCatalogModelRepository;
+    private final CarInfoService carInfoService;
+    private final TransactionTemplate transactionTemplate;
+    private final Lock[] brandLocks = IntStream.range(0, BRAND_LOCKS).mapToObj(i -> new ReentrantLock()).toArray(Lock[]::new);
+    private volatile CarCatalogIndex index = CarCatalogIndex.EMPTY;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (carCatalogBrandRepository.count() == 0) {
+            carCatalogBrandRepository.saveAll(DEFAULT_BRANDS.stream().map(brand -> new CarCatalogBrand(brand, null)).toList());
+        }
+        List<String> brands = carCatalogBrandRepository.findAll().stream().map(CarCatalogBrand::getName).toList();
+        Map<String, List<String>> models = carCatalogModelRepository.findAll().stream()
+                .collect(Collectors.groupingBy(CarCatalogModel::getBrand,
+                        Collectors.mapping(CarCatalogModel::getModel, Collectors.toList())));
+        index = CarCatalogIndex.of(brands, models);
+        logger.info("Loaded car catalog with {} brands and {} brands with models", brands.size(), models.size());
+    }
+
+    public CarBrands getCarBrands(String prefix) {
+        return new CarBrands(index.brands(prefix, prefix == null ? 0 : SUGGESTION_LIMIT));
+    }
+
+    /**
+     * Returns the models of a brand, skipping {@code offset} pages of {@code limit} models like the
+     * remote API does. With a prefix, returns up to {@value #SUGGESTION_LIMIT} matching models for typeahead.
+     */
+    public CarModels getCarModels(String limit, String offset, String brand, String prefix) throws Exception {
+        if (!index.hasModels(brand)) {
+            if (!"0".equals(offset)) {
+                return carInfoService.getCarModels(limit, offset, brand);
+            }
+            Lock lock = lockFor(brand);
+            lock.lock();
+            try {
+                if (!index.hasModels(brand)) {
+                    CarModels remote = carInfoService.getCarModels(limit, offset, brand);
+                    if (remote.getModels().isEmpty()) {
+                        return remote;
+                    }
+                    replaceModels(brand, remote.getModels());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (prefix != null) {
+            return new CarModels(new LinkedHashSet<>(index.models(brand, prefix, SUGGESTION_LIMIT)));
+        }
+        long skip = (long) Integer.parseInt(offset) * Integer.parseInt(limit);
+        return new CarModels(index.models(brand, null, 0).stream().skip(skip)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    /**
+     * Replaces the stored models of a brand and marks it as synced. Replacements of the same brand,
+     * by cold lookups or by {@link CarCatalogSync}, run one at a time so their delete and insert
+     * do not interleave.
+     */
+    public void replaceModels(String brandName, Collection<String> models) {
+        String brand = index.brandName(brandName);
+        Lock lock = lockFor(brand);
+        lock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                carCatalogModelRepository.deleteAllByBrand(brand);
+                carCatalogModelRepository.saveAll(models.stream().distinct().map(model -> new CarCatalogModel(brand, model)).toList());
+                carCatalogBrandRepository.save(new CarCatalogBrand(brand, LocalDateTime.now()));
+            });
+            synchronized (this) {
+                index = index.withBrand(brand, models);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Brands are striped over a fixed set of locks, so lookups of arbitrary brand names do not grow
+     * a lock per name. The locks are not monitors, so a virtual thread waiting for a remote fetch
+     * under one does not pin its carrier.
+     */
+    private Lock lockFor(String brand) {
+        return brandLocks[Math.floorMod(brand.toLowerCase(Locale.ROOT).hashCode(), brandLocks.length)];
+    }
+}
@@ -0,0 +1,53 @@
+package car.app.api.service;
+
+import car.app.api.repository.CarCatalogBrandRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Refreshes the car catalog from the remote API a few brands at a time: every run re-fetches the
+ * brands that were never synced or were synced longest ago, so the remote API sees a steady
+ * trickle of requests instead of a full crawl.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.car-catalog.sync.enabled", havingValue = "true", matchIfMissing = true)
+public class CarCatalogSync {
+    private static final Logger logger = LoggerFactory.getLogger(CarCatalogSync.class);
+    private static final String PAGE_SIZE = "100";
+
+    private final CarCatalogBrandRepository carCatalogBrandRepository;
+    private final CarCatalogService carCatalogService;
+    private final CarInfoService carInfoService;
+    @Value("${app.car-catalog.sync.batch-size:10}")
+    private int batchSize;
+    @Value("${app.car-catalog.sync.max-age:P1D}")
+    private Duration maxAge;
+
+    @Scheduled(initialDelayString = "${app.car-catalog.sync.initial-delay:PT30S}",
+            fixedDelayString = "${app.car-catalog.sync.interval:PT10M}")
+    public void sync() {
+        List<String> brands = carCatalogBrandRepository.findNamesSyncedBefore(LocalDateTime.now().minus(maxAge),
+                PageRequest.of(0, batchSize));
+        for (String brand : brands) {
+            try {
+                carCatalogService.replaceModels(brand, carInfoService.loadCarModels(PAGE_SIZE, "0", brand).getModels());
+            } catch (Exception e) {
+                logger.warn("Could not sync car models for {}", brand, e);
+            }
+        }
+        if (!brands.isEmpty()) {
+            logger.info("Synced car catalog for {} brands", brands.size());
+        }
+    }
+}
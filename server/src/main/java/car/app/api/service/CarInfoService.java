@@ -1,17 +1,26 @@
 package car.app.api.service;
 
 import car.app.api.client.CarsApiClient;
-import car.app.api.controller.model.CarBrands;
+import car.app.api.configs.CacheConfig;
+import car.app.api.configs.ExecutorConfig;
 import car.app.api.controller.model.CarModels;
 import car.app.api.controller.model.CarTypes;
 import car.app.api.model.ManufacturerInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
@@ -20,113 +29,96 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CarInfoService {
     private final CarsApiClient carsApiClient;
+    @Qualifier(ExecutorConfig.CAR_INFO_EXECUTOR)
+    private final Executor carInfoExecutor;
+    private final MeterRegistry meterRegistry;
 
-    @Cacheable("getCarModels")
+    @Value("${app.car-info.fan-out.max-concurrency:5}")
+    private int maxConcurrency;
+    @Value("${app.car-info.fan-out.timeout:PT10S}")
+    private Duration timeout;
+
+    /**
+     * Concurrent misses for the same key share a single load, so one cold brand triggers one fan-out.
+     */
+    @Cacheable(cacheNames = CacheConfig.CAR_MODELS, key = "new car.app.api.service.CarModelsKey(#limit, #offset, #brand)",
+            sync = true)
     public CarModels getCarModels(String limit, String offset, String brand) throws Exception {
+        return loadCarModels(limit, offset, brand);
+    }
+
+    /**
+     * Fetches the first page, then the remaining pages on the shared car info executor with at most
+     * {@code maxConcurrency} requests in flight. The whole lookup has to finish within the configured
+     * timeout; when a page fails or the deadline passes, the outstanding pages are cancelled.
+     */
+    public CarModels loadCarModels(String limit, String offset, String brand) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            CarModels carModels = fetchCarModels(limit, offset, brand);
+            outcome = "success";
+            return carModels;
+        } finally {
+            sample.stop(meterRegistry.timer("car.info.fanout", "outcome", outcome));
+        }
+    }
+
+    private CarModels fetchCarModels(String limit, String offset, String brand) throws Exception {
+        long deadline = System.nanoTime() + timeout.toNanos();
         int limitValue = Integer.parseInt(limit);
         int offsetValue = Integer.parseInt(offset);
 
         ManufacturerInfo initialBatch = carsApiClient.getAllCarModels(limit, offset, brand);
-        Set<String> response = initialBatch.getResults().stream()
-                .map(ManufacturerInfo.Result::getModel).sorted()
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<String> response = toModels(initialBatch);
 
         int totalCount = initialBatch.getTotal_count();
         int totalPages = (totalCount / limitValue) + (totalCount % limitValue == 0 ? 0 : 1);
-
-        List<Future<Set<String>>> futures = new ArrayList<>();
-        ExecutorService executorService = Executors.newFixedThreadPool(5);
-
-        for (int i = 1; i < totalPages; i++) {
-            int newOffset = i + offsetValue;
-            Future<Set<String>> future = executorService.submit(() ->
-                    carsApiClient.getAllCarModels(limit, String.valueOf(newOffset), brand)
-                            .getResults().stream()
-                            .map(ManufacturerInfo.Result::getModel).sorted()
-                            .collect(Collectors.toCollection(LinkedHashSet::new)));
-
-            futures.add(future);
+        if (totalPages <= 1) {
+            return new CarModels(response);
         }
 
-        for (Future<Set<String>> future : futures) {
-            try {
-                response.addAll(future.get());
-            } catch (InterruptedException | ExecutionException e) {
-                throw new Exception("Error on retrieving car info");
+        CompletionService<Set<String>> completionService = new ExecutorCompletionService<>(carInfoExecutor);
+        Map<Future<Set<String>>, Integer> inFlight = new HashMap<>();
+        List<Set<String>> pages = new ArrayList<>(Collections.nCopies(totalPages, Set.of()));
+        int nextPage = 1;
+        try {
+            while (nextPage < totalPages && inFlight.size() < maxConcurrency) {
+                submitPage(completionService, inFlight, nextPage++, limit, offsetValue, brand);
+            }
+            while (!inFlight.isEmpty()) {
+                Future<Set<String>> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new Exception("Timed out retrieving car info");
+                }
+                pages.set(inFlight.remove(future), future.get());
+                if (nextPage < totalPages) {
+                    submitPage(completionService, inFlight, nextPage++, limit, offsetValue, brand);
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exception("Error on retrieving car info");
+        } catch (ExecutionException | RejectedExecutionException e) {
+            throw new Exception("Error on retrieving car info");
+        } finally {
+            inFlight.keySet().forEach(future -> future.cancel(true));
         }
 
-        executorService.shutdown();
-
+        pages.forEach(response::addAll);
         return new CarModels(response);
     }
 
-    public CarBrands getCarBrands(){
-        return new CarBrands(List.of( "Abarth",
-                "Alfa Romeo",
-                "Aston Martin",
-                "Audi",
-                "Bentley",
-                "BMW",
-                "Bugatti",
-                "Cadillac",
-                "Chevrolet",
-                "Chrysler",
-                "Citroën",
-                "Dacia",
-                "Daewoo",
-                "Daihatsu",
-                "Dodge",
-                "Donkervoort",
-                "DS",
-                "Ferrari",
-                "Fiat",
-                "Fisker",
-                "Ford",
-                "Honda",
-                "Hummer",
-                "Hyundai",
-                "Infiniti",
-                "Iveco",
-                "Jaguar",
-                "Jeep",
-                "Kia",
-                "KTM",
-                "Lada",
-                "Lamborghini",
-                "Lancia",
-                "Land Rover",
-                "Landwind",
-                "Lexus",
-                "Lotus",
-                "Maserati",
-                "Maybach",
-                "Mazda",
-                "McLaren",
-                "Mercedes-Benz",
-                "MG",
-                "Mini",
-                "Mitsubishi",
-                "Morgan",
-                "Nissan",
-                "Opel",
-                "Peugeot",
-                "Porsche",
-                "Renault",
-                "Rolls-Royce",
-                "Rover",
-                "Saab",
-                "Seat",
-                "Skoda",
-                "Smart",
-                "SsangYong",
-                "Subaru",
-                "Suzuki",
-                "Tesla",
-                "Toyota",
-                "Volkswagen",
-                "Volvo"
-        ));
+    private void submitPage(CompletionService<Set<String>> completionService, Map<Future<Set<String>>, Integer> inFlight,
+                            int page, String limit, int offsetValue, String brand) {
+        String pageOffset = String.valueOf(offsetValue + page);
+        inFlight.put(completionService.submit(() -> toModels(carsApiClient.getAllCarModels(limit, pageOffset, brand))), page);
+    }
+
+    private static Set<String> toModels(ManufacturerInfo manufacturerInfo) {
+        return manufacturerInfo.getResults().stream()
+                .map(ManufacturerInfo.Result::getModel).sorted()
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     public CarTypes getCarTypes(){
@@ -0,0 +1,8 @@
+package car.app.api.service;
+
+/**
+ * Cache key for {@link CarInfoService#getCarModels}, kept explicit so the cache can reload an entry
+ * from its key when it refreshes in the background.
+ */
+public record CarModelsKey(String limit, String offset, String brand) {
+}
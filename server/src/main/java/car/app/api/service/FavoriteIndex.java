@@ -0,0 +1,52 @@
+package car.app.api.service;
+
+import car.app.api.configs.CacheConfig;
+import car.app.api.entities.User;
+import car.app.api.repository.FavoriteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * The ids of the posts each user marked as favorite, loaded with one query and kept in the
+ * {@link CacheConfig#FAVORITES} cache, so a listing can tell which of its posts are favorites
+ * without a query per page. Changing a user's favorites evicts their entry.
+ */
+@Service
+@RequiredArgsConstructor
+public class FavoriteIndex {
+    private final FavoriteRepository favoriteRepository;
+    private final CacheManager cacheManager;
+
+    public Set<String> getPostIds(String userId) {
+        Cache cache = cacheManager.getCache(CacheConfig.FAVORITES);
+        return cache != null ? cache.get(userId, () -> load(userId)) : load(userId);
+    }
+
+    /**
+     * The favorites of the user of the current request. Anonymous requests have none.
+     */
+    public Set<String> getPostIdsOfCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return getPostIds(user.getId());
+        }
+        return Set.of();
+    }
+
+    public void evict(String userId) {
+        Cache cache = cacheManager.getCache(CacheConfig.FAVORITES);
+        if (cache != null) {
+            cache.evict(userId);
+        }
+    }
+
+    private Set<String> load(String userId) {
+        return Set.copyOf(favoriteRepository.findPostIdsByUserId(userId));
+    }
+}
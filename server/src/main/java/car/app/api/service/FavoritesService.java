@@ -2,22 +2,27 @@ package car.app.api.service;
 
 import car.app.api.controller.model.FavoriteDetails;
 import car.app.api.controller.model.FavoritesResponse;
+import car.app.api.controller.model.ImageDetails;
 import car.app.api.controller.model.SearchBuilderRequest;
 import car.app.api.exceptions.FavoritesCustomException;
 import car.app.api.exceptions.UserNotFoundException;
+import car.app.api.entities.Favorite;
 import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.repository.FavoriteRepository;
 import car.app.api.repository.PostRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.context.MessageSource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.naming.AuthenticationException;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @Service
 @AllArgsConstructor
@@ -27,58 +32,72 @@ public class FavoritesService {
     private final MessageSource messageByLocale;
     private final UserService userService;
     private final SearchService searchService;
+    private final FavoriteRepository favoriteRepository;
+    private final FavoriteIndex favoriteIndex;
 
-    public FavoritesResponse add(String postId) throws FavoritesCustomException {
-        Post post = postRepository.findById(postId).orElseThrow(
-                () -> new FavoritesCustomException(buildError("error.404.postNotFound"))
-        );
-        post.setIsFavorite(true);
-        return new FavoritesResponse(postRepository.save(post).getId());
+    /**
+     * Marks the post as a favorite of the current user. Adding a favorite again changes nothing: a
+     * post already in the user's cached favorites is skipped, and an insert racing another one for
+     * the same post is stopped by the unique key.
+     */
+    public FavoritesResponse add(String postId) throws FavoritesCustomException, UserNotFoundException, AuthenticationException {
+        User user = userService.getAuthenticatedUser();
+        if (favoriteIndex.getPostIds(user.getId()).contains(postId)) {
+            return new FavoritesResponse(postId);
+        }
+        if (postRepository.findById(postId).isEmpty()) {
+            throw new FavoritesCustomException(buildError("error.404.postNotFound"));
+        }
+        try {
+            favoriteRepository.save(new Favorite(user.getId(), postId));
+        } catch (DataIntegrityViolationException e) {
+            // added by a concurrent request
+        }
+        favoriteIndex.evict(user.getId());
+        return new FavoritesResponse(postId);
     }
 
-    @Transactional
-    public void remove(String postId) throws FavoritesCustomException {
-        Post post = postRepository.findById(postId).orElseThrow(
-                () -> new FavoritesCustomException(buildError("error.404.postNotFound"))
-        );
-        post.setIsFavorite(false);
-        postRepository.save(post);
+    /**
+     * Removes the post from the current user's favorites. Removing a post that is not a favorite
+     * changes nothing; only a post that does not exist is reported.
+     */
+    public void remove(String postId) throws FavoritesCustomException, UserNotFoundException, AuthenticationException {
+        User user = userService.getAuthenticatedUser();
+        if (favoriteRepository.deleteByUserIdAndPostId(user.getId(), postId) == 0) {
+            if (postRepository.findById(postId).isEmpty()) {
+                throw new FavoritesCustomException(buildError("error.404.postNotFound"));
+            }
+            return;
+        }
+        favoriteIndex.evict(user.getId());
     }
 
     public Page<FavoriteDetails> show(Integer page, Integer size) throws FavoritesCustomException, UserNotFoundException, AuthenticationException {
-        Page<Post> response = postRepository.findAllByUserAndIsFavoriteTrue(PageRequest.of(page, size), userService.getAuthenticatedUser());
+        Page<Post> response = postRepository.findFavoritesByUserId(userService.getAuthenticatedUser().getId(), PageRequest.of(page, size));
         if(response.isEmpty()){
             throw new FavoritesCustomException(buildError("error.404.noFavoritesFound"));
         }
 
-        List<FavoriteDetails> mappedPostDetails = response.stream()
-                .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                        .stream().map(String::valueOf).toList()))
-                .toList();
-
-        return new PageImpl<>(mappedPostDetails, response.getPageable(), response.getTotalElements());
+        return mapToFavoriteDetails(response);
     }
 
     public Page<FavoriteDetails> search(SearchBuilderRequest searchBuilderRequest, Integer page, Integer size) throws UserNotFoundException, AuthenticationException {
         if (searchBuilderRequest == null) {
-            Page<Post> postPage = postRepository.findAllByUserAndIsFavoriteTrue(PageRequest.of(page, size), userService.getAuthenticatedUser());
-            List<FavoriteDetails> postDetailsList = postPage.getContent().stream()
-                    .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                            .stream().map(String::valueOf).toList()))
-                    .toList();
-
-            return new PageImpl<>(postDetailsList, postPage.getPageable(), postPage.getTotalElements());
+            return mapToFavoriteDetails(postRepository.findFavoritesByUserId(userService.getAuthenticatedUser().getId(), PageRequest.of(page, size)));
         }
-        Page<Post> response = searchService.searchPosts(searchBuilderRequest, page, size);
-        List<FavoriteDetails> postDetailsList = response.stream()
-                .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                        .stream().map(String::valueOf).toList()))
+        return mapToFavoriteDetails(searchService.searchPosts(searchBuilderRequest, page, size));
+    }
+
+    private Page<FavoriteDetails> mapToFavoriteDetails(Page<Post> postPage) {
+        Map<String, List<ImageDetails>> images = imageUploadService.getImagesByPosts(postPage.getContent());
+        List<FavoriteDetails> postDetailsList = postPage.getContent().stream()
+                .map(post -> mapToPostDetail(post, images.getOrDefault(post.getId(), List.of())))
                 .toList();
 
-        return new PageImpl<>(postDetailsList, response.getPageable(), response.getTotalElements());
+        return new PageImpl<>(postDetailsList, postPage.getPageable(), postPage.getTotalElements());
     }
 
-    public FavoriteDetails mapToPostDetail(Post post, List<String> images){
+    public FavoriteDetails mapToPostDetail(Post post, List<ImageDetails> images){
         return new FavoriteDetails(
                 post.getId(),
                 post.getTitle(),
@@ -0,0 +1,128 @@
+package car.app.api.service;
+
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.projection.ImageBlobStats;
+import car.app.api.repository.projection.UnreferencedBlob;
+import car.app.api.storage.ImageStores;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reclaims stored images that no upload has referenced for {@code app.images.storage.reclaim.grace},
+ * which leaves uploads that found a blob time to count their reference. Each run also refreshes the
+ * deduplication gauges: {@code image.storage.dedup.ratio} is the bytes the references would take as
+ * separate copies over the bytes actually stored, and {@code image.storage.saved.bytes} the difference.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageBlobCollector implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ImageBlobCollector.class);
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStores imageStores;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${app.images.storage.reclaim.grace:PT1H}")
+    private Duration grace;
+    @Value("${app.images.storage.reclaim.batch-size:100}")
+    private int batchSize;
+    private volatile ImageBlobStats stats;
+
+    @Scheduled(initialDelayString = "${app.images.storage.reclaim.initial-delay:PT1M}",
+            fixedDelayString = "${app.images.storage.reclaim.interval:PT5M}")
+    public void reclaim() {
+        LocalDateTime before = LocalDateTime.now().minus(grace);
+        int reclaimed = 0;
+        long reclaimedBytes = 0;
+        List<UnreferencedBlob> blobs;
+        do {
+            blobs = imageBlobRepository.findUnreferenced(before, PageRequest.of(0, batchSize));
+            for (UnreferencedBlob blob : blobs) {
+                if (reclaim(blob, before)) {
+                    reclaimed++;
+                    reclaimedBytes += blob.getStoredLength();
+                }
+            }
+        } while (blobs.size() == batchSize);
+        if (reclaimed > 0) {
+            logger.info("Reclaimed {} unreferenced images, {} bytes", reclaimed, reclaimedBytes);
+        }
+        refreshStats();
+    }
+
+    /**
+     * Deletes the blob and its content in one transaction. The deleted blob keeps its content hash
+     * locked until the transaction ends, so an upload of the same image cannot commit a new blob
+     * while the content is being removed. If the content cannot be deleted the blob is kept, to be
+     * tried again on the next run.
+     */
+    private boolean reclaim(UnreferencedBlob blob, LocalDateTime before) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (imageBlobRepository.deleteUnreferenced(blob.getId(), before) == 0) {
+                    return false;
+                }
+                try {
+                    imageStores.get(blob.getStorage()).delete(blob.getContentHash());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }));
+        } catch (UncheckedIOException e) {
+            logger.warn("Could not delete stored image {}", blob.getContentHash(), e.getCause());
+            return false;
+        }
+    }
+
+    public ImageBlobStats refreshStats() {
+        stats = imageBlobRepository.findStats();
+        return stats;
+    }
+
+    /**
+     * Returns the figures of the last run, loading them on first use.
+     */
+    public ImageBlobStats getStats() {
+        ImageBlobStats current = stats;
+        return current != null ? current : refreshStats();
+    }
+
+    public static double dedupRatio(ImageBlobStats stats) {
+        return stats.getStoredBytes() > 0 ? (double) stats.getReferencedBytes() / stats.getStoredBytes() : 1.0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("image.storage.blobs", this, collector -> collector.getStats().getContents())
+                .description("Distinct images stored")
+                .register(registry);
+        Gauge.builder("image.storage.references", this, collector -> collector.getStats().getReferenceCount())
+                .description("Uploads referencing a stored image")
+                .register(registry);
+        Gauge.builder("image.storage.stored", this, collector -> collector.getStats().getStoredBytes())
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("image.storage.saved", this,
+                        collector -> collector.getStats().getReferencedBytes() - collector.getStats().getStoredBytes())
+                .baseUnit("bytes")
+                .description("Bytes not stored because uploads share an image")
+                .register(registry);
+        Gauge.builder("image.storage.dedup.ratio", this, collector -> dedupRatio(collector.getStats()))
+                .register(registry);
+    }
+}
@@ -0,0 +1,19 @@
+package car.app.api.service;
+
+import car.app.api.enums.ImageCodec;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.projection.StoredImage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImageContent implements StoredImage {
+    private final String id;
+    private final byte[] data;
+    private final String contentType;
+    private final String contentHash;
+    private final Long contentLength;
+    private final ImageStorage storage;
+    private final ImageCodec codec;
+}
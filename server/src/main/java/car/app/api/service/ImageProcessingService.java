@@ -0,0 +1,257 @@
+package car.app.api.service;
+
+import car.app.api.configs.ExecutorConfig;
+import car.app.api.entities.ImageDerivative;
+import car.app.api.enums.ImageSize;
+import car.app.api.enums.ImageStatus;
+import car.app.api.exceptions.ImageCustomException;
+import car.app.api.exceptions.ServiceBusyException;
+import car.app.api.repository.ImageDerivativeRepository;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.projection.StoredImage;
+import car.app.api.storage.ImageStores;
+import car.app.api.utils.ImageFormat;
+import car.app.api.utils.ImageUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background pipeline for uploaded images. Uploads are stored as {@link ImageStatus#PENDING} and
+ * queued here once their transaction commits. A worker checks the dimensions from the image header,
+ * decodes the image once and renders a JPEG for every {@link ImageSize}, stopping at the first size
+ * the original already fits in. Images that cannot be decoded or are too large fail at once; other
+ * errors are retried with a growing delay. The scheduled sweep picks up retries and images that
+ * could not be queued, so a full queue or a restart only delays processing.
+ * <p>
+ * Each run is timed as {@code image.processing}, tagged with its outcome.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageProcessingService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageProcessingService.class);
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final ImageUploadRepository imageUploadRepository;
+    private final ImageDerivativeRepository imageDerivativeRepository;
+    private final ImageStores imageStores;
+    @Qualifier(ExecutorConfig.IMAGE_PROCESSING_EXECUTOR)
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final MessageSource messageSource;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Locale locale = Locale.ENGLISH;
+    @Value("${app.images.processing.max-pixels:25000000}")
+    private long maxPixels;
+    @Value("${app.images.processing.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${app.images.processing.retry-delay:PT30S}")
+    private Duration retryDelay;
+    @Value("${app.images.processing.lease:PT10M}")
+    private Duration lease;
+
+    /**
+     * Refuses new uploads with {@link ServiceBusyException} while the queue has no room for them,
+     * so a burst of uploads is answered with 503 instead of growing a backlog nobody waits for.
+     */
+    public void checkCapacity(int images) throws ServiceBusyException {
+        if (executor.getThreadPoolExecutor().getQueue().remainingCapacity() < images) {
+            meterRegistry.counter("image.processing.rejected").increment();
+            throw new ServiceBusyException(messageSource.getMessage("error.503.imageProcessingBusy", null, locale));
+        }
+    }
+
+    /**
+     * Makes the thumbnail of an image stored before the pipeline existed, on the calling thread. The
+     * same {@code max-pixels} limit applies as in the pipeline, checked from the header before the
+     * image is decoded. Returns {@code null} when the image is unreadable or too large.
+     */
+    public byte[] createLegacyThumbnail(byte[] content) {
+        Dimension dimension;
+        try {
+            dimension = ImageUtil.readDimensions(content);
+        } catch (IOException e) {
+            return null;
+        }
+        if (dimension == null || (long) dimension.width * dimension.height > maxPixels) {
+            return null;
+        }
+        return ImageUtil.createThumbnail(content);
+    }
+
+    /**
+     * Queues the images once the current transaction commits, or right away outside of one.
+     */
+    public void enqueueAfterCommit(List<String> imageIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(imageIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(imageIds);
+            }
+        });
+    }
+
+    /**
+     * Hands the images to the pipeline. Images that are queued already are skipped, and images that
+     * do not fit in the queue stay pending for the next sweep.
+     */
+    public void enqueue(Collection<String> imageIds) {
+        for (String imageId : imageIds) {
+            if (!queued.add(imageId)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> process(imageId));
+            } catch (TaskRejectedException e) {
+                queued.remove(imageId);
+                meterRegistry.counter("image.processing.deferred").increment();
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.images.processing.sweep-initial-delay:PT15S}",
+            fixedDelayString = "${app.images.processing.sweep-interval:PT15S}")
+    public void processPending() {
+        LocalDateTime now = LocalDateTime.now();
+        int released = imageUploadRepository.releaseExpiredLeases(ImageStatus.PROCESSING, ImageStatus.PENDING,
+                ImageStatus.FAILED, maxAttempts, now);
+        if (released > 0) {
+            logger.warn("Released {} images whose processing did not finish in time", released);
+        }
+        int capacity = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (capacity > 0) {
+            enqueue(imageUploadRepository.findIdsToProcess(ImageStatus.PENDING, now, PageRequest.of(0, capacity)));
+        }
+    }
+
+    void process(String imageId) {
+        queued.remove(imageId);
+        if (imageUploadRepository.claimForProcessing(imageId, ImageStatus.PENDING, ImageStatus.PROCESSING,
+                LocalDateTime.now().plus(lease)) == 0) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ready";
+        try {
+            Optional<RenderedImage> rendered = render(imageId);
+            if (rendered.isPresent()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!save(imageId, rendered.get())) {
+                        status.setRollbackOnly();
+                    }
+                });
+            }
+        } catch (ImageCustomException e) {
+            outcome = "rejected";
+            imageUploadRepository.markProcessingFailed(imageId, ImageStatus.FAILED, truncate(e.getMessage()), null);
+        } catch (Exception e) {
+            outcome = "error";
+            logger.warn("Could not process image {}", imageId, e);
+            retryOrFail(imageId, e);
+        } finally {
+            sample.stop(meterRegistry.timer("image.processing", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Renders the sizes of a stored image, or returns empty when the image was deleted meanwhile.
+     */
+    private Optional<RenderedImage> render(String imageId) throws IOException, ImageCustomException {
+        Optional<StoredImage> storedImage = imageUploadRepository.findStoredImageById(imageId);
+        if (storedImage.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] content;
+        try (InputStream inputStream = imageStores.get(storedImage.get().getStorage()).openStream(storedImage.get())) {
+            content = inputStream.readAllBytes();
+        }
+        Dimension dimension = ImageUtil.readDimensions(content);
+        if (dimension == null) {
+            throw new ImageCustomException(messageSource.getMessage("error.409.imageUnreadable", null, locale));
+        }
+        if ((long) dimension.width * dimension.height > maxPixels) {
+            throw new ImageCustomException(messageSource.getMessage("error.409.imageTooLarge", new Object[]{maxPixels}, locale));
+        }
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(content));
+        if (source == null) {
+            throw new ImageCustomException(messageSource.getMessage("error.409.imageUnreadable", null, locale));
+        }
+        List<ImageDerivative> derivatives = new ArrayList<>(ImageSize.values().length);
+        for (ImageSize size : ImageSize.values()) {
+            Dimension scaled = ImageUtil.scaledDimension(source.getWidth(), source.getHeight(), size.getMaxDimension());
+            derivatives.add(new ImageDerivative(imageId, size, scaled.width, scaled.height,
+                    ImageFormat.JPEG.getMediaType(), ImageUtil.scaleToJpeg(source, scaled)));
+            if (scaled.width == source.getWidth() && scaled.height == source.getHeight()) {
+                break;
+            }
+        }
+        return Optional.of(new RenderedImage(source.getWidth(), source.getHeight(), derivatives));
+    }
+
+    /**
+     * Stores the rendered sizes and marks the image ready, with the smallest size as its thumbnail.
+     * Returns {@code false} when the image was deleted while it was rendered.
+     */
+    private boolean save(String imageId, RenderedImage rendered) {
+        if (imageUploadRepository.markProcessed(imageId, ImageStatus.READY, rendered.width(), rendered.height(),
+                rendered.derivatives().get(0).getContent()) == 0) {
+            return false;
+        }
+        imageDerivativeRepository.deleteAllByImageId(imageId);
+        imageDerivativeRepository.saveAll(rendered.derivatives());
+        return true;
+    }
+
+    private void retryOrFail(String imageId, Exception e) {
+        int attempts = imageUploadRepository.findProcessingStateById(imageId)
+                .map(state -> state.getProcessingAttempts() != null ? state.getProcessingAttempts() : 0)
+                .orElse(maxAttempts);
+        if (attempts >= maxAttempts) {
+            imageUploadRepository.markProcessingFailed(imageId, ImageStatus.FAILED, truncate(e.toString()), null);
+        } else {
+            imageUploadRepository.markProcessingFailed(imageId, ImageStatus.PENDING, truncate(e.toString()),
+                    LocalDateTime.now().plus(retryDelay.multipliedBy(1L << (attempts - 1))));
+        }
+    }
+
+    private record RenderedImage(int width, int height, List<ImageDerivative> derivatives) {
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -1,41 +1,256 @@
 package car.app.api.service;
 
+import car.app.api.controller.model.ImageDetails;
 import car.app.api.exceptions.ImageCustomException;
+import car.app.api.entities.ImageBlob;
 import car.app.api.entities.ImageUpload;
 import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.exceptions.ImageNotFoundException;
+import car.app.api.exceptions.ServiceBusyException;
+import car.app.api.controller.model.ImageStatusResponse;
+import car.app.api.enums.ImageSize;
+import car.app.api.enums.ImageStatus;
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.ImageDerivativeRepository;
+import car.app.api.enums.ImageStorage;
 import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.projection.ImageReference;
+import car.app.api.repository.projection.ImageThumbnail;
+import car.app.api.repository.projection.StoredImage;
+import car.app.api.storage.ImageStore;
+import car.app.api.storage.ImageStores;
+import car.app.api.utils.ImageFormat;
+import car.app.api.utils.ImageUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ImageUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploadService.class);
 
     public final ImageUploadRepository imageUploadRepository;
     public final MessageSource messageSource;
+    private final ImageStores imageStores;
+    private final ImageDerivativeRepository imageDerivativeRepository;
+    private final ImageProcessingService imageProcessingService;
+    private final ImageBlobRepository imageBlobRepository;
+    private final TransactionTemplate transactionTemplate;
     private final Locale locale = Locale.ENGLISH;
 
-    public void postImageUpload(List<String> imageUploads, Post post) throws ImageCustomException {
-        if (isValidBase64String(imageUploads)) {
-            for (String postsImageUrl : imageUploads) {
-                ImageUpload imageUpload = new ImageUpload();
-                imageUpload.setPost(post);
-                imageUpload.setProfileImage(postsImageUrl);
-                imageUpload.setCreatedAt(LocalDateTime.now());
-                imageUpload.setModifiedAt(LocalDateTime.now());
-                imageUpload.setCreatedBy(post.getUser().getUsername());
-                imageUpload.setModifiedBy(post.getUser().getUsername());
-                imageUploadRepository.save(imageUpload);
+    /**
+     * Stores the images of a post. Each image is decoded once, and all rows are inserted together
+     * with {@code saveAll} so Hibernate can send them as one JDBC batch in the caller's transaction.
+     * Images stored before, by any post, are only referenced, see {@link #saveImages}. Resizing is
+     * left to the {@link ImageProcessingService}, which gets the images once the post is committed.
+     */
+    public void postImageUpload(List<String> imageUploads, Post post) throws ImageCustomException, ServiceBusyException {
+        imageProcessingService.checkCapacity(imageUploads.size());
+        List<byte[]> images = decodeImages(imageUploads);
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingImage> pending = new ArrayList<>(images.size());
+        for (byte[] image : images) {
+            ImageUpload imageUpload = new ImageUpload();
+            imageUpload.setPost(post);
+            imageUpload.setStatus(ImageStatus.PENDING);
+            imageUpload.setContentType(ImageFormat.detect(image).getMediaType());
+            imageUpload.setContentHash(ImageUtil.sha256Hex(image));
+            imageUpload.setContentLength((long) image.length);
+            imageUpload.setCreatedAt(now);
+            imageUpload.setModifiedAt(now);
+            imageUpload.setCreatedBy(post.getUser().getUsername());
+            imageUpload.setModifiedBy(post.getUser().getUsername());
+            pending.add(new PendingImage(imageUpload, imageStore -> imageStore.write(imageUpload, image)));
+        }
+        imageProcessingService.enqueueAfterCommit(saveImages(pending));
+    }
+
+    /**
+     * Stores uploaded images that are not attached to a post yet and returns their ids, to be sent
+     * with the post in {@code imageIds}. Each part is staged in a file and read in chunks, so memory
+     * use does not grow with the image size. The images are resized in the background, see
+     * {@link #getProcessingStatus}.
+     */
+    public List<ImageDetails> uploadImages(List<MultipartFile> files, User user) throws ImageCustomException, ServiceBusyException {
+        imageProcessingService.checkCapacity(files.size());
+        LocalDateTime now = LocalDateTime.now();
+        List<Path> staged = new ArrayList<>(files.size());
+        try {
+            List<PendingImage> pending = new ArrayList<>(files.size());
+            for (MultipartFile file : files) {
+                pending.add(stageImage(file, user, now, staged));
+            }
+            List<String> imageIds = transactionTemplate.execute(status -> saveImages(pending));
+            imageProcessingService.enqueueAfterCommit(imageIds);
+            return imageIds.stream().map(ImageUploadService::mapToImageDetails).toList();
+        } finally {
+            staged.forEach(ImageUploadService::deleteStaged);
+        }
+    }
+
+    private PendingImage stageImage(MultipartFile file, User user, LocalDateTime now, List<Path> staged) throws ImageCustomException {
+        try {
+            Path content = Files.createTempFile("image-upload-", ".tmp");
+            staged.add(content);
+            file.transferTo(content);
+            ContentDescription description;
+            try (InputStream inputStream = Files.newInputStream(content)) {
+                description = describe(inputStream);
+            }
+            if (description.format() == ImageFormat.UNKNOWN) {
+                throw new ImageCustomException(messageSource.getMessage("error.409.imageNotSupported", null, locale));
+            }
+            ImageUpload imageUpload = new ImageUpload();
+            imageUpload.setContentType(description.contentType());
+            imageUpload.setContentHash(description.contentHash());
+            imageUpload.setContentLength(description.contentLength());
+            imageUpload.setStatus(ImageStatus.PENDING);
+            imageUpload.setCreatedAt(now);
+            imageUpload.setModifiedAt(now);
+            imageUpload.setCreatedBy(user.getUsername());
+            imageUpload.setModifiedBy(user.getUsername());
+            return new PendingImage(imageUpload, imageStore -> imageStore.write(imageUpload, content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves new image rows in the current transaction and returns their ids. Content the current
+     * store holds already, under the same hash, is only referenced; the rest is written and its blobs
+     * are committed up front in their own transaction, so an equal image uploaded at the same time
+     * cannot make the rows fail. Blobs left unreferenced by a failed upload are reclaimed by the
+     * {@link ImageBlobCollector}. References are added with one statement per number of rows sharing
+     * a hash, which is a single statement unless the same image was sent twice.
+     */
+    private List<String> saveImages(List<PendingImage> images) {
+        ImageStore imageStore = imageStores.current();
+        Map<String, Long> references = images.stream()
+                .collect(Collectors.groupingBy(image -> image.imageUpload().getContentHash(), Collectors.counting()));
+        Set<String> stored = new HashSet<>(imageBlobRepository.findContentHashes(imageStore.getStorage(), references.keySet()));
+        List<ImageBlob> blobs = new ArrayList<>();
+        List<PendingImage> written = new ArrayList<>();
+        for (PendingImage image : images) {
+            if (!stored.add(image.imageUpload().getContentHash())) {
+                image.imageUpload().setStorage(imageStore.getStorage());
+                continue;
+            }
+            try {
+                blobs.add(image.content().writeTo(imageStore));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-        } else {
-            throw new ImageCustomException(messageSource.getMessage("error.409.imageNotBase64", null, locale));
+            written.add(image);
+        }
+        saveBlobs(imageStore.getStorage(), blobs);
+        restoreReclaimed(imageStore, written);
+        List<String> imageIds = imageUploadRepository.saveAll(images.stream().map(PendingImage::imageUpload).toList())
+                .stream().map(ImageUpload::getId).toList();
+        int referenced = 0;
+        for (Map.Entry<Long, List<String>> group : references.keySet().stream()
+                .collect(Collectors.groupingBy(references::get)).entrySet()) {
+            referenced += imageBlobRepository.addReferences(imageStore.getStorage(), group.getValue(), group.getKey());
+        }
+        if (referenced != references.size()) {
+            throw new IllegalStateException("Stored image content was reclaimed before it could be referenced");
+        }
+        return imageIds;
+    }
+
+    private void saveBlobs(ImageStorage storage, List<ImageBlob> blobs) {
+        if (blobs.isEmpty()) {
+            return;
+        }
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            newTransaction.executeWithoutResult(status -> imageBlobRepository.saveAll(blobs));
+        } catch (DataIntegrityViolationException e) {
+            newTransaction.executeWithoutResult(status -> {
+                Set<String> stored = new HashSet<>(imageBlobRepository.findContentHashes(storage,
+                        blobs.stream().map(ImageBlob::getContentHash).toList()));
+                imageBlobRepository.saveAll(blobs.stream().filter(blob -> !stored.contains(blob.getContentHash())).toList());
+            });
+        }
+    }
+
+    /**
+     * Writes content again that the {@link ImageBlobCollector} reclaimed after it was written and
+     * before its blob was committed. The collector deletes content in the transaction that deletes
+     * the old blob, and the insert of a blob with the same hash waits for that transaction, so
+     * content that exists once the blobs are committed stays.
+     */
+    private static void restoreReclaimed(ImageStore imageStore, List<PendingImage> written) {
+        for (PendingImage image : written) {
+            if (imageStore.exists(image.imageUpload().getContentHash())) {
+                continue;
+            }
+            try {
+                image.content().writeTo(imageStore);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private record PendingImage(ImageUpload imageUpload, ContentWriter content) {
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        ImageBlob writeTo(ImageStore imageStore) throws IOException;
+    }
+
+    private static void deleteStaged(Path staged) {
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException e) {
+            logger.warn("Could not delete staged upload {}", staged, e);
+        }
+    }
+
+    /**
+     * Attaches images uploaded with {@link #uploadImages} to a new post. Every image has to belong
+     * to the post's author and not be attached yet, otherwise none are.
+     */
+    public void attachImages(List<String> imageIds, Post post) throws ImageCustomException {
+        Set<String> ids = new HashSet<>(imageIds);
+        int attached = imageUploadRepository.attachToPost(ids, post, post.getUser().getUsername(), LocalDateTime.now());
+        if (attached != ids.size()) {
+            throw new ImageCustomException(messageSource.getMessage("error.409.imageNotAttachable", null, locale));
         }
     }
 
@@ -43,22 +258,199 @@ public class ImageUploadService {
         return imageUploadRepository.findAllByPost(post);
     }
 
+    public Map<String, List<ImageDetails>> getImagesByPosts(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return Map.of();
+        }
+        return imageUploadRepository.findReferencesByPostIdIn(posts.stream().map(Post::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(
+                        ImageReference::getPostId,
+                        Collectors.mapping(image -> mapToImageDetails(image.getId()), Collectors.toList())
+                ));
+    }
+
+    public byte[] getImage(String imageId) throws ImageNotFoundException {
+        StoredImage storedImage = findStoredImage(imageId);
+        try (InputStream inputStream = imageStores.get(storedImage.getStorage()).openStream(storedImage)) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ImageContent getImageContent(String imageId) throws ImageNotFoundException {
+        StoredImage storedImage = findStoredImage(imageId);
+        if (storedImage.getContentHash() == null || storedImage.getContentLength() == null || storedImage.getContentType() == null) {
+            return describe(storedImage);
+        }
+        return new ImageContent(storedImage.getId(), storedImage.getData(), storedImage.getContentType(),
+                storedImage.getContentHash(), storedImage.getContentLength(), storedImage.getStorage(), storedImage.getCodec());
+    }
+
+    /**
+     * Streams the inclusive byte range {@code [start, end]} of the decoded image to the given output.
+     */
+    public void writeImage(ImageContent image, OutputStream outputStream, long start, long end) throws IOException {
+        imageStores.get(image.getStorage()).transferTo(image, start, end - start + 1, Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Reports how far an image got in the processing pipeline and links the sizes rendered so far.
+     * Images stored before the pipeline existed are reported as ready, without sizes.
+     */
+    public ImageStatusResponse getProcessingStatus(String imageId) throws ImageNotFoundException {
+        return imageUploadRepository.findProcessingStateById(imageId)
+                .map(state -> new ImageStatusResponse(state.getId(),
+                        state.getStatus() != null ? state.getStatus() : ImageStatus.READY,
+                        state.getProcessingAttempts() != null ? state.getProcessingAttempts() : 0,
+                        state.getProcessingError(), state.getWidth(), state.getHeight(),
+                        imageDerivativeRepository.findImageSizesByImageId(imageId).stream()
+                                .sorted()
+                                .collect(Collectors.toMap(size -> size.name().toLowerCase(Locale.ROOT),
+                                        size -> "/api/images/" + imageId + "/sizes/" + size.name().toLowerCase(Locale.ROOT),
+                                        (first, second) -> first, LinkedHashMap::new))))
+                .orElseThrow(() -> new ImageNotFoundException(messageSource.getMessage("error.404.imageNotFound", null, locale)));
+    }
+
+    public byte[] getDerivative(String imageId, ImageSize size) throws ImageNotFoundException {
+        return imageDerivativeRepository.findContentByImageIdAndImageSize(imageId, size)
+                .orElseThrow(() -> new ImageNotFoundException(messageSource.getMessage("error.404.imageNotFound", null, locale)));
+    }
+
+    /**
+     * Returns the thumbnail the pipeline rendered, or empty while the image is still waiting for it.
+     * Images stored before the pipeline existed have no status; their thumbnail is made and stored on
+     * first request. Images the pipeline gave up on, and legacy images that cannot be rendered, have
+     * no thumbnail.
+     */
+    @Transactional
+    public Optional<byte[]> getThumbnail(String imageId) throws ImageNotFoundException {
+        ImageThumbnail thumbnail = imageUploadRepository.findThumbnailById(imageId)
+                .orElseThrow(() -> new ImageNotFoundException(messageSource.getMessage("error.404.imageNotFound", null, locale)));
+        if (thumbnail.getThumbnail() != null) {
+            return Optional.of(thumbnail.getThumbnail());
+        }
+        if (thumbnail.getStatus() == ImageStatus.PENDING || thumbnail.getStatus() == ImageStatus.PROCESSING) {
+            return Optional.empty();
+        }
+        byte[] generated = thumbnail.getStatus() == null ? imageProcessingService.createLegacyThumbnail(getImage(imageId)) : null;
+        if (generated == null) {
+            throw new ImageNotFoundException(messageSource.getMessage("error.404.imageNotFound", null, locale));
+        }
+        imageUploadRepository.updateThumbnail(imageId, generated);
+        return Optional.of(generated);
+    }
+
+    /**
+     * Computes and stores the metadata of images uploaded before it was recorded at upload time.
+     * The image is inflated in chunks so the decoded image is never fully held in memory.
+     */
+    private ImageContent describe(StoredImage storedImage) {
+        ContentDescription description;
+        try (InputStream inputStream = imageStores.get(storedImage.getStorage()).openStream(storedImage)) {
+            description = describe(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        imageUploadRepository.updateContentMetadata(storedImage.getId(), description.contentType(),
+                description.contentHash(), description.contentLength());
+        return new ImageContent(storedImage.getId(), storedImage.getData(), description.contentType(),
+                description.contentHash(), description.contentLength(), storedImage.getStorage(), storedImage.getCodec());
+    }
+
+    /**
+     * Reads an image in chunks to compute its hash and length and detect its format from the header.
+     */
+    private static ContentDescription describe(InputStream inputStream) throws IOException {
+        MessageDigest digest = ImageUtil.sha256();
+        byte[] header = new byte[16];
+        int headerLength = 0;
+        long contentLength = 0;
+        byte[] buffer = new byte[8 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (headerLength < header.length) {
+                int copied = Math.min(read, header.length - headerLength);
+                System.arraycopy(buffer, 0, header, headerLength, copied);
+                headerLength += copied;
+            }
+            digest.update(buffer, 0, read);
+            contentLength += read;
+        }
+        return new ContentDescription(ImageFormat.detect(Arrays.copyOf(header, headerLength)),
+                HexFormat.of().formatHex(digest.digest()), contentLength);
+    }
+
+    private record ContentDescription(ImageFormat format, String contentHash, long contentLength) {
+        String contentType() {
+            return format.getMediaType();
+        }
+    }
+
+    private StoredImage findStoredImage(String imageId) throws ImageNotFoundException {
+        return imageUploadRepository.findStoredImageById(imageId)
+                .filter(image -> image.getStorage() == ImageStorage.FILESYSTEM || image.getData() != null)
+                .orElseThrow(() -> new ImageNotFoundException(messageSource.getMessage("error.404.imageNotFound", null, locale)));
+    }
+
+    /**
+     * Deletes the images of a post and drops their references. Content no other image references is
+     * reclaimed by the {@link ImageBlobCollector} once it has stayed unreferenced for a grace period;
+     * files of images stored before blobs existed are deleted when no row references them anymore.
+     */
     @Transactional
     public void deleteImages(Post post) {
+        List<String> storedFiles = imageUploadRepository.findContentHashesByPostAndStorage(post, ImageStorage.FILESYSTEM);
+        imageDerivativeRepository.deleteAllByImagePost(post);
+        imageBlobRepository.removeReferences(post);
+        imageBlobRepository.markUnreferenced(post, LocalDateTime.now());
         imageUploadRepository.deleteAllByPost(post);
+        if (!storedFiles.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ImageStore imageStore = imageStores.get(ImageStorage.FILESYSTEM);
+                    for (String contentHash : storedFiles) {
+                        try {
+                            imageStore.delete(contentHash);
+                        } catch (IOException e) {
+                            logger.warn("Could not delete stored image {}", contentHash, e);
+                        }
+                    }
+                }
+            });
+        }
     }
 
-    public static boolean isValidBase64String(List<String> inputs) {
-            for (String input : inputs) {
-                try {
-                    byte[] decodedBytes = Base64.getDecoder().decode(input);
-                    String reencodedString = Base64.getEncoder().encodeToString(decodedBytes);
-                    return input.equals(reencodedString);
-                } catch (IllegalArgumentException e) {
-                    return false;
-                }
+    public static ImageDetails mapToImageDetails(String imageId) {
+        return new ImageDetails(imageId, "/api/images/" + imageId, "/api/images/" + imageId + "/thumbnail");
+    }
+
+    /**
+     * Decodes base64 images, rejecting the whole list when one of them is not padded standard base64.
+     */
+    public List<byte[]> decodeImages(List<String> inputs) throws ImageCustomException {
+        List<byte[]> images = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            byte[] decoded = decodeBase64(input);
+            if (decoded == null) {
+                throw new ImageCustomException(messageSource.getMessage("error.409.imageNotBase64", null, locale));
             }
-        return false;
+            images.add(decoded);
+        }
+        return images;
     }
-}
 
+    private static byte[] decodeBase64(String input) {
+        if (input == null) {
+            return null;
+        }
+        try {
+            byte[] decoded = Base64.getDecoder().decode(input);
+            return input.length() == 4 * ((decoded.length + 2) / 3) ? decoded : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
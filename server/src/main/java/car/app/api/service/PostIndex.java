@@ -0,0 +1,364 @@
+package car.app.api.service;
+
+import car.app.api.controller.model.SearchBuilderRequest;
+import car.app.api.entities.Post;
+import car.app.api.enums.AdvertIndex;
+import car.app.api.enums.Fuel;
+import car.app.api.enums.PostType;
+import car.app.api.enums.Transmission;
+import car.app.api.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Optional in-memory index of the searchable post fields, enabled with
+ * {@code app.search.post-index.enabled=true}. Each field is a primitive column indexed by slot, strings
+ * are dictionary-encoded and every {@link Fuel}, {@link Transmission}, {@link PostType} and
+ * {@link AdvertIndex} value has a bitmap of the slots holding it. A search intersects the bitmaps,
+ * scans the remaining slots against the numeric and string filters and returns only the ids of the
+ * requested page; {@link SearchService} then loads those posts from the database.
+ * <p>
+ * It holds the same posts the criteria search sees. {@link PostService} updates it on every write,
+ * and it is rebuilt from the database on startup.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.search.post-index.enabled", havingValue = "true")
+public class PostIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PostIndex.class);
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final PostRepository postRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns = new Columns(0);
+    private List<Consumer<Columns>> pendingWrites;
+    private volatile boolean ready;
+
+    public record Hits(List<String> ids, long total) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Columns rebuilt = new Columns(REBUILD_BATCH_SIZE);
+        Page<Post> page;
+        int pageNumber = 0;
+        do {
+            page = postRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+            page.forEach(rebuilt::put);
+        } while (page.hasNext());
+
+        lock.writeLock().lock();
+        try {
+            pendingWrites.forEach(write -> write.accept(rebuilt));
+            pendingWrites = null;
+            columns = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Built post index with {} posts", rebuilt.size());
+    }
+
+    public void put(Post post) {
+        write(target -> target.put(post));
+    }
+
+    public void remove(String postId) {
+        write(target -> target.remove(postId));
+    }
+
+    private void write(Consumer<Columns> write) {
+        lock.writeLock().lock();
+        try {
+            write.accept(columns);
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the posts matching the filters from {@code offset}, newest first like the criteria search.
+     */
+    public Hits search(SearchBuilderRequest searchRequest, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return columns.search(searchRequest, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Column storage. Not thread-safe on its own; {@link PostIndex} guards it with its lock.
+     */
+    private static final class Columns {
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final BitSet live = new BitSet();
+        private final Map<Fuel, BitSet> fuels = bitmaps(Fuel.class);
+        private final Map<Transmission, BitSet> transmissions = bitmaps(Transmission.class);
+        private final Map<PostType, BitSet> postTypes = bitmaps(PostType.class);
+        private final Map<AdvertIndex, BitSet> advertIndexes = bitmaps(AdvertIndex.class);
+        private String[] ids;
+        private int[] brands;
+        private int[] models;
+        private int[] colors;
+        private int[] types;
+        private long[] prices;
+        private int[] kilometers;
+        private int[] powers;
+        private int[] engineSizes;
+        private int[] firstRegistrations;
+        private long[] createdAts;
+        private int capacity;
+        private int nextSlot;
+
+        Columns(int capacity) {
+            resize(Math.max(capacity, 16));
+        }
+
+        int size() {
+            return slots.size();
+        }
+
+        void put(Post post) {
+            Integer existing = slots.get(post.getId());
+            int slot = existing != null ? existing : allocate();
+            clearBitmaps(slot);
+            slots.put(post.getId(), slot);
+            live.set(slot);
+            ids[slot] = post.getId();
+            brands[slot] = code(post.getBrand());
+            models[slot] = code(post.getModel());
+            colors[slot] = code(post.getColor());
+            types[slot] = code(post.getType());
+            prices[slot] = post.getPrice() != null ? cents(post.getPrice(), RoundingMode.HALF_UP) : NULL_LONG;
+            kilometers[slot] = valueOf(post.getKilometers());
+            powers[slot] = valueOf(post.getPower());
+            engineSizes[slot] = post.getEngineSize() != null ? tenths(post.getEngineSize(), RoundingMode.HALF_UP) : NULL_INT;
+            firstRegistrations[slot] = valueOf(post.getFirstRegistration());
+            createdAts[slot] = post.getCreatedAt() != null ? sortKey(post.getCreatedAt()) : NULL_LONG;
+            setBit(fuels, post.getFuel(), slot);
+            setBit(transmissions, post.getTransmission(), slot);
+            setBit(postTypes, post.getPostType(), slot);
+            setBit(advertIndexes, post.getPostAdvertIndex(), slot);
+        }
+
+        void remove(String postId) {
+            Integer slot = slots.remove(postId);
+            if (slot != null) {
+                live.clear(slot);
+                clearBitmaps(slot);
+                ids[slot] = null;
+                freeSlots.push(slot);
+            }
+        }
+
+        Hits search(SearchBuilderRequest request, long offset, int limit) {
+            BitSet candidates = (BitSet) live.clone();
+            andBitmap(candidates, fuels, request.getFuel());
+            andBitmap(candidates, transmissions, request.getTransmission());
+            andBitmap(candidates, postTypes, request.getPostType());
+
+            int brand = lookup(request.getBrand());
+            int model = lookup(request.getModel());
+            int color = lookup(request.getColor());
+            int type = lookup(request.getType());
+            long lowestPrice = request.getLowestPrice() != null ? cents(request.getLowestPrice(), RoundingMode.CEILING) : NULL_LONG;
+            long highestPrice = request.getHighestPrice() != null ? cents(request.getHighestPrice(), RoundingMode.FLOOR) : NULL_LONG;
+            int engineSize = request.getEngineSize() != null ? exactTenths(request.getEngineSize()) : NULL_INT;
+
+            int wanted = (int) Math.min(Integer.MAX_VALUE - 1, offset + limit);
+            Comparator<Integer> newestFirst = (a, b) -> createdAts[a] != createdAts[b]
+                    ? Long.compare(createdAts[b], createdAts[a])
+                    : ids[b].compareTo(ids[a]);
+            PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(wanted, 1024) + 1, newestFirst.reversed());
+            long total = 0;
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (!matchesCode(brands[slot], request.getBrand(), brand)
+                        || !matchesCode(models[slot], request.getModel(), model)
+                        || !matchesCode(colors[slot], request.getColor(), color)
+                        || !matchesCode(types[slot], request.getType(), type)
+                        || (lowestPrice != NULL_LONG && (prices[slot] == NULL_LONG || prices[slot] < lowestPrice))
+                        || (highestPrice != NULL_LONG && (prices[slot] == NULL_LONG || prices[slot] > highestPrice))
+                        || !matchesAtLeast(firstRegistrations[slot], request.getFromYear())
+                        || !matchesAtMost(firstRegistrations[slot], request.getToYear())
+                        || !matchesEqual(kilometers[slot], request.getKilometers())
+                        || !matchesEqual(powers[slot], request.getPower())
+                        || (request.getEngineSize() != null && (engineSize == NULL_INT || engineSizes[slot] != engineSize))) {
+                    continue;
+                }
+                total++;
+                if (wanted > 0) {
+                    top.add(slot);
+                    if (top.size() > wanted) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Integer> ordered = new ArrayList<>(top);
+            ordered.sort(newestFirst);
+            List<String> page = new ArrayList<>(limit);
+            for (int i = (int) Math.min(offset, ordered.size()); i < ordered.size(); i++) {
+                page.add(ids[ordered.get(i)]);
+            }
+            return new Hits(Collections.unmodifiableList(page), total);
+        }
+
+        private int allocate() {
+            if (!freeSlots.isEmpty()) {
+                return freeSlots.pop();
+            }
+            if (nextSlot == capacity) {
+                resize(capacity * 2);
+            }
+            return nextSlot++;
+        }
+
+        private void resize(int newCapacity) {
+            ids = ids == null ? new String[newCapacity] : Arrays.copyOf(ids, newCapacity);
+            brands = grow(brands, newCapacity);
+            models = grow(models, newCapacity);
+            colors = grow(colors, newCapacity);
+            types = grow(types, newCapacity);
+            prices = prices == null ? new long[newCapacity] : Arrays.copyOf(prices, newCapacity);
+            kilometers = grow(kilometers, newCapacity);
+            powers = grow(powers, newCapacity);
+            engineSizes = grow(engineSizes, newCapacity);
+            firstRegistrations = grow(firstRegistrations, newCapacity);
+            createdAts = createdAts == null ? new long[newCapacity] : Arrays.copyOf(createdAts, newCapacity);
+            capacity = newCapacity;
+        }
+
+        private void clearBitmaps(int slot) {
+            fuels.values().forEach(bitmap -> bitmap.clear(slot));
+            transmissions.values().forEach(bitmap -> bitmap.clear(slot));
+            postTypes.values().forEach(bitmap -> bitmap.clear(slot));
+            advertIndexes.values().forEach(bitmap -> bitmap.clear(slot));
+        }
+
+        /**
+         * Strings compare case-insensitively, like the default MySQL collation the criteria search runs on.
+         */
+        private int code(String value) {
+            return value != null ? dictionary.computeIfAbsent(value.toLowerCase(Locale.ROOT), key -> dictionary.size()) : NULL_INT;
+        }
+
+        private int lookup(String value) {
+            return value != null ? dictionary.getOrDefault(value.toLowerCase(Locale.ROOT), NULL_INT) : NULL_INT;
+        }
+
+        private static boolean matchesCode(int code, String filter, int filterCode) {
+            return filter == null || (filterCode != NULL_INT && code == filterCode);
+        }
+
+        private static boolean matchesEqual(int value, Integer filter) {
+            return filter == null || (value != NULL_INT && value == filter);
+        }
+
+        private static boolean matchesAtLeast(int value, Integer filter) {
+            return filter == null || (value != NULL_INT && value >= filter);
+        }
+
+        private static boolean matchesAtMost(int value, Integer filter) {
+            return filter == null || (value != NULL_INT && value <= filter);
+        }
+
+        private static <E extends Enum<E>> void andBitmap(BitSet candidates, Map<E, BitSet> bitmaps, E filter) {
+            if (filter != null) {
+                candidates.and(bitmaps.get(filter));
+            }
+        }
+
+        private static <E extends Enum<E>> void setBit(Map<E, BitSet> bitmaps, E value, int slot) {
+            if (value != null) {
+                bitmaps.get(value).set(slot);
+            }
+        }
+
+        private static <E extends Enum<E>> Map<E, BitSet> bitmaps(Class<E> type) {
+            Map<E, BitSet> bitmaps = new EnumMap<>(type);
+            for (E value : type.getEnumConstants()) {
+                bitmaps.put(value, new BitSet());
+            }
+            return bitmaps;
+        }
+
+        private static int[] grow(int[] column, int newCapacity) {
+            return column == null ? new int[newCapacity] : Arrays.copyOf(column, newCapacity);
+        }
+
+        private static int valueOf(Integer value) {
+            return value != null ? value : NULL_INT;
+        }
+
+        private static long cents(BigDecimal value, RoundingMode roundingMode) {
+            return value.setScale(2, roundingMode).unscaledValue().longValue();
+        }
+
+        private static int tenths(BigDecimal value, RoundingMode roundingMode) {
+            return value.setScale(1, roundingMode).unscaledValue().intValue();
+        }
+
+        /**
+         * Engine size filters are exact matches; a value with more precision than stored matches nothing.
+         */
+        private static int exactTenths(BigDecimal value) {
+            try {
+                return value.setScale(1, RoundingMode.UNNECESSARY).unscaledValue().intValue();
+            } catch (ArithmeticException e) {
+                return NULL_INT;
+            }
+        }
+
+        private static long sortKey(LocalDateTime createdAt) {
+            return createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + createdAt.getNano();
+        }
+    }
+}
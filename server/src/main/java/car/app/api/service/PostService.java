@@ -1,20 +1,31 @@
 package car.app.api.service;
 
+import car.app.api.configs.CacheConfig;
 import car.app.api.controller.model.*;
 import car.app.api.entities.Post;
 import car.app.api.entities.User;
 import car.app.api.exceptions.BindingException;
 import car.app.api.exceptions.ImageCustomException;
+import car.app.api.exceptions.InvalidCursorException;
 import car.app.api.exceptions.PostCustomException;
+import car.app.api.exceptions.ServiceBusyException;
 import car.app.api.controller.enums.PostStatus;
 import car.app.api.enums.AdvertIndex;
+import car.app.api.repository.FavoriteRepository;
 import car.app.api.repository.PostRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.BindingResult;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -27,17 +38,30 @@ public class PostService {
     public final SearchService searchService;
     public final MessageSource messageByLocale;
     public final ImageUploadService imageUploadService;
+    public final ObjectProvider<PostIndex> postIndex;
+    public final CacheManager cacheManager;
+    public final FavoriteRepository favoriteRepository;
+    public final FavoriteIndex favoriteIndex;
 
+    /**
+     * Saves the post and its images in one transaction, so a rejected image leaves no post behind.
+     * The images are resized in the background after the commit.
+     */
+    @Transactional(rollbackFor = {ImageCustomException.class, ServiceBusyException.class})
+    @CacheEvict(cacheNames = {CacheConfig.SEARCH_COUNTS, CacheConfig.SEARCH_FACETS}, allEntries = true)
     public PostResponse save(PostRequest postRequest, User userAuth, List<String> postsImageUrls, BindingResult result
-    ) throws BindingException, ImageCustomException {
+    ) throws BindingException, ImageCustomException, ServiceBusyException {
         if (result.hasErrors()) {
             throw new BindingException(result.getAllErrors().toString());
         }
         Post post = postRepository.save(mapToPost(postRequest, userAuth));
         if(postsImageUrls != null && !postsImageUrls.isEmpty()) imageUploadService.postImageUpload(postsImageUrls, post);
+        if(postRequest.getImageIds() != null && !postRequest.getImageIds().isEmpty()) imageUploadService.attachImages(postRequest.getImageIds(), post);
+        afterCommit(() -> postIndex.ifAvailable(index -> index.put(post)));
         return new PostResponse(post.getId());
     }
 
+    @CacheEvict(cacheNames = {CacheConfig.SEARCH_COUNTS, CacheConfig.SEARCH_FACETS}, allEntries = true)
     public EditPostResponse editPostDetails(String postId, EditPostRequest editPostRequest, User authUser, BindingResult result)
             throws PostCustomException, BindingException {
         if (result.hasErrors()) {
@@ -46,14 +70,17 @@ public class PostService {
         Optional<Post> findPost = postRepository.findById(postId);
         if (findPost.isPresent()) {
             Post editablePost = editPostDetails(findPost.get(), editPostRequest, authUser);
-            editablePost.setIsFavorite(findPost.get().getIsFavorite());
             editablePost.setId(findPost.get().getId());
-            return new EditPostResponse(postRepository.save(editablePost).getId());
+            Post saved = postRepository.save(editablePost);
+            postIndex.ifAvailable(index -> index.put(saved));
+            evictPostDetails(saved.getId());
+            return new EditPostResponse(saved.getId());
         } else {
             throw new PostCustomException(buildError("error.409.postServerError"));
         }
     }
 
+    @CacheEvict(cacheNames = {CacheConfig.SEARCH_COUNTS, CacheConfig.SEARCH_FACETS}, allEntries = true)
     public String changeStatus(String postId) throws PostCustomException {
         Optional<Post> findIfPostExist = postRepository.findById(postId);
         if (findIfPostExist.isPresent()) {
@@ -61,54 +88,64 @@ public class PostService {
         } else {
             throw new PostCustomException(buildError("error.404.postNotFound"));
         }
-        return postRepository.save(findIfPostExist.get()).getId();
+        Post saved = postRepository.save(findIfPostExist.get());
+        postIndex.ifAvailable(index -> index.put(saved));
+        evictPostDetails(saved.getId());
+        return saved.getId();
     }
 
     public Page<PostDetails> findAll(Integer page, Integer size) {
-        Page<Post> postPage = postRepository.findAll(PageRequest.of(page, size));
-        List<PostDetails> postDetailsList = postPage.getContent().stream()
-                .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                        .stream().map(String::valueOf).toList()))
-                .toList();
-
-        return new PageImpl<>(postDetailsList, postPage.getPageable(), postPage.getTotalElements());
+        return mapToPostDetails(postRepository.findAll(PageRequest.of(page, size)));
     }
 
 
     public Page<PostDetails> search(SearchBuilderRequest searchBuilderRequest, Integer page, Integer size) {
-        if (searchBuilderRequest == null) {
-            Page<Post> postPage = postRepository.findAll(PageRequest.of(page, size));
-            List<PostDetails> postDetailsList = postPage.getContent().stream()
-                    .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                            .stream().map(String::valueOf).toList()))
-                    .toList();
+        return search(searchBuilderRequest, page, size, true);
+    }
 
-            return new PageImpl<>(postDetailsList, postPage.getPageable(), postPage.getTotalElements());
+    public Page<PostDetails> search(SearchBuilderRequest searchBuilderRequest, Integer page, Integer size, boolean withCount) {
+        if (searchBuilderRequest == null) {
+            return mapToPostDetails(postRepository.findAll(PageRequest.of(page, size)));
         }
-        Page<Post> response = searchService.searchPosts(searchBuilderRequest, page, size);
-        List<PostDetails> postDetailsList = response.stream()
-                .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                        .stream().map(String::valueOf).toList()))
-                .toList();
+        return mapToPostDetails(searchService.searchPosts(searchBuilderRequest, page, size, withCount));
+    }
 
-        return new PageImpl<>(postDetailsList, response.getPageable(), response.getTotalElements());
+    public Page<PostDetails> searchText(String query, Integer page, Integer size) {
+        return mapToPostDetails(searchService.searchText(query, page, size));
     }
 
-    public Page<PostDetails> listByUser(String userId, Integer page, Integer size) {
-        Page<Post> postPage = postRepository.findByUserId(userId, PageRequest.of(page, size));
-        List<PostDetails> postDetailsList = postPage.getContent().stream()
-                .map(post -> mapToPostDetail(post, imageUploadService.getImages(post)
-                        .stream().map(String::valueOf).toList()))
-                .toList();
+    public SearchFacets getFacets(SearchBuilderRequest searchBuilderRequest) {
+        return searchService.getFacets(searchBuilderRequest != null ? searchBuilderRequest : new SearchBuilderRequest());
+    }
 
-        return new PageImpl<>(postDetailsList, postPage.getPageable(), postPage.getTotalElements());
+    public CursorPage<PostDetails> searchAfter(SearchBuilderRequest searchBuilderRequest, String cursor, Integer size)
+            throws InvalidCursorException {
+        SearchCursor after;
+        try {
+            after = cursor != null ? SearchCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(buildError("error.400.invalidCursor"));
+        }
+        SearchBuilderRequest filters = searchBuilderRequest != null ? searchBuilderRequest : new SearchBuilderRequest();
+        List<Post> posts = searchService.searchPostsAfter(filters, after, size);
+        List<PostDetails> postDetailsList = mapToPostDetails(posts);
+        Post last = posts.size() == size ? posts.get(posts.size() - 1) : null;
+        return new CursorPage<>(postDetailsList, last != null ? new SearchCursor(last.getCreatedAt(), last.getId()).encode() : null);
+    }
+
+    public Page<PostDetails> listByUser(String userId, Integer page, Integer size) {
+        return mapToPostDetails(postRepository.findByUserId(userId, PageRequest.of(page, size)));
     }
 
+    @CacheEvict(cacheNames = {CacheConfig.SEARCH_COUNTS, CacheConfig.SEARCH_FACETS}, allEntries = true)
     public void deleteById(String postId) throws PostCustomException {
         Post findPost = postRepository.findById(postId).orElseThrow(() ->
                 new PostCustomException(buildError("error.404.postNotFound")));
         imageUploadService.deleteImages(findPost);
+        favoriteRepository.deleteAllByPostId(findPost.getId());
         postRepository.deleteById(findPost.getId());
+        postIndex.ifAvailable(index -> index.remove(findPost.getId()));
+        evictPostDetails(findPost.getId());
     }
 
     private Post mapToPost(PostRequest postRequest, User getAuthenticatedUser){
@@ -135,7 +172,6 @@ public class PostService {
         post.setType(postRequest.getType());
         post.setModel(postRequest.getModel());
         post.setPostType(postRequest.getPostType());
-        post.setIsFavorite(false);
         return post;
     }
 
@@ -160,7 +196,63 @@ public class PostService {
         return post;
     }
 
-    public PostDetails mapToPostDetail(Post post, List<String> images){
+    private Page<PostDetails> mapToPostDetails(Page<Post> postPage) {
+        return new PageImpl<>(mapToPostDetails(postPage.getContent()), postPage.getPageable(), postPage.getTotalElements());
+    }
+
+    /**
+     * Takes the details of each post from the post details cache when the cached copy is as recent
+     * as the loaded post, and assembles the rest with a single image query. Cached details are
+     * shared between users, so the favorite flag is set on a copy, from the user's favorite ids.
+     */
+    private List<PostDetails> mapToPostDetails(List<Post> posts) {
+        Cache cache = cacheManager.getCache(CacheConfig.POST_DETAILS);
+        Map<String, PostDetails> postDetails = new HashMap<>();
+        List<Post> missing = new ArrayList<>();
+        for (Post post : posts) {
+            PostDetails cached = cache != null ? cache.get(post.getId(), PostDetails.class) : null;
+            if (cached != null && Objects.equals(cached.getModifiedAt(), post.getModifiedAt())) {
+                postDetails.put(post.getId(), cached);
+            } else {
+                missing.add(post);
+            }
+        }
+        Map<String, List<ImageDetails>> images = imageUploadService.getImagesByPosts(missing);
+        for (Post post : missing) {
+            PostDetails details = mapToPostDetail(post, images.getOrDefault(post.getId(), List.of()));
+            postDetails.put(post.getId(), details);
+            if (cache != null) {
+                cache.put(post.getId(), details);
+            }
+        }
+        Set<String> favorites = favoriteIndex.getPostIdsOfCurrentUser();
+        return posts.stream()
+                .map(post -> postDetails.get(post.getId()))
+                .map(details -> favorites.contains(details.getId()) ? details.withFavorite(true) : details)
+                .toList();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void evictPostDetails(String postId) {
+        Cache cache = cacheManager.getCache(CacheConfig.POST_DETAILS);
+        if (cache != null) {
+            cache.evict(postId);
+        }
+    }
+
+    public PostDetails mapToPostDetail(Post post, List<ImageDetails> images){
         return new PostDetails(
                 post.getId(),
                 post.getTitle(),
@@ -181,7 +273,8 @@ public class PostService {
                 post.getEngineSize(),
                 post.getCreatedAt(),
                 post.getModifiedAt(),
-                images
+                images,
+                false
         );
     }
 
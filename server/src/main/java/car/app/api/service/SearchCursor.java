@@ -0,0 +1,33 @@
+package car.app.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last post of a keyset search page. Posts are ordered by {@code (createdAt, id)}
+ * descending, so the next page starts right after this pair. Clients see it as an opaque string.
+ */
+public record SearchCursor(LocalDateTime createdAt, String id) {
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a cursor produced by {@link #encode()}
+     */
+    public static SearchCursor decode(String value) {
+        String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf('|');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed search cursor");
+        }
+        try {
+            return new SearchCursor(LocalDateTime.parse(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed search cursor", e);
+        }
+    }
+}
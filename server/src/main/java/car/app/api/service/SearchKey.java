@@ -0,0 +1,31 @@
+package car.app.api.service;
+
+import car.app.api.controller.model.SearchBuilderRequest;
+import car.app.api.enums.Fuel;
+import car.app.api.enums.PostType;
+import car.app.api.enums.Transmission;
+
+import java.math.BigDecimal;
+
+/**
+ * Cache key for the search count and facets: an immutable copy of the filters of a
+ * {@link SearchBuilderRequest}, which is mutable and must not be cached by reference. Decimal
+ * filters are normalised so that {@code 5000} and {@code 5000.00} share an entry.
+ */
+public record SearchKey(PostType postType, String type, String brand, String model, String color,
+                        Transmission transmission, Integer kilometers, Fuel fuel, Integer power,
+                        BigDecimal lowestPrice, BigDecimal highestPrice, Integer firstRegistration,
+                        BigDecimal engineSize, Integer fromYear, Integer toYear) {
+
+    public static SearchKey of(SearchBuilderRequest request) {
+        return new SearchKey(request.getPostType(), request.getType(), request.getBrand(), request.getModel(),
+                request.getColor(), request.getTransmission(), request.getKilometers(), request.getFuel(),
+                request.getPower(), normalise(request.getLowestPrice()), normalise(request.getHighestPrice()),
+                request.getFirstRegistration(), normalise(request.getEngineSize()), request.getFromYear(),
+                request.getToYear());
+    }
+
+    private static BigDecimal normalise(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros() : null;
+    }
+}
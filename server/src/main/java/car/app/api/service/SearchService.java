@@ -1,55 +1,234 @@
 package car.app.api.service;
 
+import car.app.api.configs.CacheConfig;
 import car.app.api.controller.model.SearchBuilderRequest;
+import car.app.api.controller.model.SearchFacets;
 import car.app.api.entities.Post;
+import car.app.api.migration.PostFullTextIndexMigration;
+import car.app.api.repository.PostRepository;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Service;
 import jakarta.persistence.EntityManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class SearchService {
+    private static final String UNKNOWN_FACET = "unknown";
+    private static final List<PriceRange> PRICE_RANGES = List.of(
+            new PriceRange("0-5000", new BigDecimal("5000")),
+            new PriceRange("5000-10000", new BigDecimal("10000")),
+            new PriceRange("10000-20000", new BigDecimal("20000")),
+            new PriceRange("20000-50000", new BigDecimal("50000")),
+            new PriceRange("50000+", null));
+
+    private record PriceRange(String label, BigDecimal upperBound) {
+    }
 
     private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+    private final PostRepository postRepository;
+    private final DataSource dataSource;
+    private final ObjectProvider<PostIndex> postIndex;
+    private volatile Boolean fullTextSupported;
 
     public Page<Post> searchPosts(SearchBuilderRequest searchRequest, Integer page, Integer size) {
+        return searchPosts(searchRequest, page, size, true);
+    }
+
+    /**
+     * Returns one page of matching posts, newest first. The total comes from a count query with the
+     * same filters, cached briefly per filter set so paging through results does not recount each
+     * time. Without {@code withCount} the count is skipped: one extra row is fetched instead, and
+     * the total only tells whether a next page exists.
+     * <p>
+     * When the in-memory {@link PostIndex} is enabled and built, the filtering, ordering and count
+     * are answered from it and only the page of posts is loaded from the database.
+     */
+    public Page<Post> searchPosts(SearchBuilderRequest searchRequest, Integer page, Integer size, boolean withCount) {
+        PostIndex index = postIndex.getIfAvailable();
+        if (index != null && index.isReady()) {
+            return searchPostsFromIndex(index, searchRequest, page, size);
+        }
+        return searchPostsWithCriteria(searchRequest, page, size, withCount);
+    }
+
+    Page<Post> searchPostsFromIndex(PostIndex index, SearchBuilderRequest searchRequest, Integer page, Integer size) {
+        PostIndex.Hits hits = index.search(searchRequest, (long) page * size, size);
+        Map<String, Post> posts = hits.ids().isEmpty() ? Map.of() : postRepository.findAllByIdIn(hits.ids()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> content = hits.ids().stream().map(posts::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, PageRequest.of(page, size), hits.total());
+    }
+
+    Page<Post> searchPostsWithCriteria(SearchBuilderRequest searchRequest, Integer page, Integer size, boolean withCount) {
         CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
         CriteriaQuery<Post> criteriaQuery = criteriaBuilder.createQuery(Post.class);
         Root<Post> root = criteriaQuery.from(Post.class);
+        root.fetch("user", JoinType.LEFT);
 
         List<Predicate> predicates = buildSearchPredicates(searchRequest, criteriaBuilder, root);
 
         criteriaQuery.where(predicates.toArray(new Predicate[0]));
+        criteriaQuery.orderBy(newestFirst(criteriaBuilder, root));
 
         TypedQuery<Post> typedQuery = entityManager.createQuery(criteriaQuery);
 
+        long offset = (long) page * size;
         List<Post> result = typedQuery
-                .setFirstResult(page)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(withCount ? size : size + 1)
+                .getResultList();
+
+        if (withCount) {
+            return new PageImpl<>(result, PageRequest.of(page, size), getCount(searchRequest));
+        }
+        boolean hasNext = result.size() > size;
+        List<Post> content = hasNext ? result.subList(0, size) : result;
+        return new PageImpl<>(content, PageRequest.of(page, size), offset + content.size() + (hasNext ? 1 : 0));
+    }
+
+    /**
+     * Keyset variant of {@link #searchPosts}: returns the {@code size} newest matching posts created
+     * before {@code after} (or the newest ones when it is null). Each page is an index range scan on
+     * {@code (created_at, id)} however deep it is, unlike an OFFSET that has to skip every earlier row.
+     * Posts without a creation date are not reachable this way.
+     */
+    public List<Post> searchPostsAfter(SearchBuilderRequest searchRequest, SearchCursor after, Integer size) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Post> criteriaQuery = criteriaBuilder.createQuery(Post.class);
+        Root<Post> root = criteriaQuery.from(Post.class);
+        root.fetch("user", JoinType.LEFT);
+
+        List<Predicate> predicates = buildSearchPredicates(searchRequest, criteriaBuilder, root);
+        if (after != null) {
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<String> id = root.get("id");
+            predicates.add(criteriaBuilder.or(
+                    criteriaBuilder.lessThan(createdAt, after.createdAt()),
+                    criteriaBuilder.and(criteriaBuilder.equal(createdAt, after.createdAt()),
+                            criteriaBuilder.lessThan(id, after.id()))));
+        } else {
+            predicates.add(criteriaBuilder.isNotNull(root.get("createdAt")));
+        }
+
+        criteriaQuery.where(predicates.toArray(new Predicate[0]));
+        criteriaQuery.orderBy(newestFirst(criteriaBuilder, root));
+
+        return entityManager.createQuery(criteriaQuery)
                 .setMaxResults(size)
                 .getResultList();
+    }
+
+    /**
+     * Ranked free-text search over title, description, brand and model. On MySQL this is a natural
+     * language query against the {@code ft_post_text} FULLTEXT index, which InnoDB keeps up to date
+     * as posts are saved, edited and deleted. Databases without the index fall back to matching any
+     * of the words with LIKE, newest first and without ranking.
+     */
+    public Page<Post> searchText(String query, Integer page, Integer size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        if (!isFullTextSupported()) {
+            return searchTextByLike(query, pageRequest);
+        }
+        Page<String> ids = postRepository.findIdsByFullText(query, pageRequest);
+        Map<String, Post> posts = postRepository.findAllByIdIn(ids.getContent()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> ranked = ids.getContent().stream().map(posts::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(ranked, pageRequest, ids.getTotalElements());
+    }
+
+    private Page<Post> searchTextByLike(String query, PageRequest pageRequest) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Post> criteriaQuery = criteriaBuilder.createQuery(Post.class);
+        Root<Post> root = criteriaQuery.from(Post.class);
+        root.fetch("user", JoinType.LEFT);
+        criteriaQuery.where(textPredicate(query, criteriaBuilder, root));
+        criteriaQuery.orderBy(newestFirst(criteriaBuilder, root));
+        List<Post> result = entityManager.createQuery(criteriaQuery)
+                .setFirstResult(Math.toIntExact(pageRequest.getOffset()))
+                .setMaxResults(pageRequest.getPageSize())
+                .getResultList();
+
+        CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
+        Root<Post> countRoot = countQuery.from(Post.class);
+        countQuery.select(criteriaBuilder.count(countRoot)).where(textPredicate(query, criteriaBuilder, countRoot));
+        return new PageImpl<>(result, pageRequest, entityManager.createQuery(countQuery).getSingleResult());
+    }
 
-        return new PageImpl<>(result, PageRequest.of(page, size), getCount());
+    private static Predicate textPredicate(String query, CriteriaBuilder criteriaBuilder, Root<Post> root) {
+        List<Predicate> predicates = new ArrayList<>();
+        for (String term : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            String pattern = "%" + term + "%";
+            for (String field : List.of("title", "description", "brand", "model")) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get(field)), pattern));
+            }
+        }
+        return criteriaBuilder.or(predicates.toArray(new Predicate[0]));
     }
 
-    public long getCount() {
+    private boolean isFullTextSupported() {
+        if (fullTextSupported == null) {
+            try {
+                fullTextSupported = PostFullTextIndexMigration.exists(dataSource);
+            } catch (DataAccessException | MetaDataAccessException e) {
+                return false;
+            }
+        }
+        return fullTextSupported;
+    }
+
+    public long getCount(SearchBuilderRequest searchRequest) {
+        Cache cache = cacheManager.getCache(CacheConfig.SEARCH_COUNTS);
+        if (cache == null) {
+            return count(searchRequest);
+        }
+        return Objects.requireNonNull(cache.get(SearchKey.of(searchRequest), () -> count(searchRequest)));
+    }
+
+    private long count(SearchBuilderRequest searchRequest) {
         CriteriaBuilder builder = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> criteriaQuery = builder.createQuery(Long.class);
         Root<Post> postRoot = criteriaQuery.from(Post.class);
 
         criteriaQuery.select(builder.count(postRoot));
+        criteriaQuery.where(buildSearchPredicates(searchRequest, builder, postRoot).toArray(new Predicate[0]));
 
         return entityManager.createQuery(criteriaQuery).getSingleResult();
     }
 
+    private static List<Order> newestFirst(CriteriaBuilder criteriaBuilder, Root<Post> root) {
+        return List.of(criteriaBuilder.desc(root.get("createdAt")), criteriaBuilder.desc(root.get("id")));
+    }
+
     private List<Predicate> buildSearchPredicates(SearchBuilderRequest searchRequest, CriteriaBuilder criteriaBuilder, Root<Post> root) {
         List<Predicate> predicates = new ArrayList<>();
 
@@ -73,6 +252,63 @@ public class SearchService {
         return predicates;
     }
 
+    /**
+     * Counts the posts matching the filters per brand, fuel, transmission and price range. All four
+     * facets come from one grouped query over the combinations that actually occur, folded into
+     * per-facet counts here. Results are cached per filter set until a post is written.
+     */
+    @Cacheable(cacheNames = CacheConfig.SEARCH_FACETS, key = "T(car.app.api.service.SearchKey).of(#searchRequest)", sync = true)
+    public SearchFacets getFacets(SearchBuilderRequest searchRequest) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+        Root<Post> root = criteriaQuery.from(Post.class);
+
+        Expression<String> priceRange = priceRange(criteriaBuilder, root.get("price"));
+        Expression<Long> count = criteriaBuilder.count(root);
+        criteriaQuery.multiselect(root.get("brand"), root.get("fuel"), root.get("transmission"), priceRange, count)
+                .where(buildSearchPredicates(searchRequest, criteriaBuilder, root).toArray(new Predicate[0]))
+                .groupBy(root.get("brand"), root.get("fuel"), root.get("transmission"), priceRange);
+
+        Map<String, Long> brands = new HashMap<>();
+        Map<String, Long> fuels = new HashMap<>();
+        Map<String, Long> transmissions = new HashMap<>();
+        Map<String, Long> priceRanges = new HashMap<>();
+        for (Tuple row : entityManager.createQuery(criteriaQuery).getResultList()) {
+            long rowCount = row.get(4, Long.class);
+            brands.merge(facetValue(row.get(0)), rowCount, Long::sum);
+            fuels.merge(facetValue(row.get(1)), rowCount, Long::sum);
+            transmissions.merge(facetValue(row.get(2)), rowCount, Long::sum);
+            priceRanges.merge(facetValue(row.get(3)), rowCount, Long::sum);
+        }
+
+        Map<String, Long> orderedPriceRanges = new LinkedHashMap<>();
+        PRICE_RANGES.forEach(range -> orderedPriceRanges.put(range.label(), priceRanges.getOrDefault(range.label(), 0L)));
+        orderedPriceRanges.put(UNKNOWN_FACET, priceRanges.getOrDefault(UNKNOWN_FACET, 0L));
+        return new SearchFacets(byCountDescending(brands), byCountDescending(fuels), byCountDescending(transmissions),
+                orderedPriceRanges);
+    }
+
+    private static Expression<String> priceRange(CriteriaBuilder criteriaBuilder, Path<BigDecimal> price) {
+        CriteriaBuilder.Case<String> priceCase = criteriaBuilder.<String>selectCase()
+                .when(criteriaBuilder.isNull(price), UNKNOWN_FACET);
+        for (PriceRange range : PRICE_RANGES) {
+            if (range.upperBound() != null) {
+                priceCase = priceCase.when(criteriaBuilder.lessThan(price, range.upperBound()), range.label());
+            }
+        }
+        return priceCase.otherwise(PRICE_RANGES.get(PRICE_RANGES.size() - 1).label());
+    }
+
+    private static String facetValue(Object value) {
+        return value != null ? value.toString() : UNKNOWN_FACET;
+    }
+
+    private static Map<String, Long> byCountDescending(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
     private <T> void addPredicateIfNotNull(T value, Path<T> path, BiFunction<Path<T>, T, Predicate> predicateFunction, List<Predicate> predicates) {
         if (Objects.nonNull(value)) {
             predicates.add(predicateFunction.apply(path, value));
@@ -1,18 +1,23 @@
 package car.app.api.service;
 
+import car.app.api.configs.CacheConfig;
 import car.app.api.controller.model.UserRequest;
 import car.app.api.controller.model.UserResponse;
+import car.app.api.exceptions.ServiceBusyException;
 import car.app.api.exceptions.UserNotFoundException;
 import car.app.api.exceptions.UsernameAlreadyExists;
 import car.app.api.controller.model.GetUserResponse;
 import car.app.api.entities.User;
+import car.app.api.repository.FavoriteRepository;
 import car.app.api.repository.UserRepository;
+import car.app.api.service.auth.PasswordHashingService;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.MessageSource;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 
@@ -20,39 +25,77 @@ import javax.naming.AuthenticationException;
 import java.time.LocalDateTime;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserService {
 
     public final UserRepository userRepository;
     private final MessageSource messageByLocale;
+    private final CacheManager cacheManager;
+    private final PasswordHashingService passwordHashingService;
+    private final FavoriteRepository favoriteRepository;
 
-    public UserService(UserRepository userRepository, MessageSource messageByLocale) {
+    public UserService(UserRepository userRepository, MessageSource messageByLocale, CacheManager cacheManager,
+                       PasswordHashingService passwordHashingService, FavoriteRepository favoriteRepository) {
         this.userRepository = userRepository;
         this.messageByLocale = messageByLocale;
+        this.cacheManager = cacheManager;
+        this.passwordHashingService = passwordHashingService;
+        this.favoriteRepository = favoriteRepository;
     }
-    PasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder();
 
-    public GetUserResponse get() throws UserNotFoundException {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Optional<User> findUser = userRepository.findByUsername(userDetails.getUsername());
-        if (findUser.isEmpty()) {
-            throw new UserNotFoundException(buildError("error.404.userNotFound"));
-        }
-        User user = findUser.get();
+    public GetUserResponse get() throws UserNotFoundException, AuthenticationException {
+        User user = getAuthenticatedUser();
         return new GetUserResponse(user.getUsername(), user.getFirstName(), user.getLastName(), user.getCity(), user.getCountry(), user.getEmail(), user.getPhoneNumber(), user.getAddress());
     }
 
+    /**
+     * Looks a user up by username for authentication. Users are cached briefly per username, since
+     * every authenticated request resolves its principal here; {@link #evictUser} drops an entry
+     * when the user changes.
+     */
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#username", sync = true)
     public User getByUsername(String username) {
         return userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
     public void deleteUser(String userId) throws UserNotFoundException {
         User findUser = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(buildError("error.404.userNotFound")));
+        favoriteRepository.deleteAllByUserId(findUser.getId());
         userRepository.deleteById(findUser.getId());
+        evictUser(findUser.getUsername());
+        Cache favorites = cacheManager.getCache(CacheConfig.FAVORITES);
+        if (favorites != null) {
+            favorites.evict(findUser.getId());
+        }
+    }
+
+    public void evictUser(String username) {
+        Cache cache = cacheManager.getCache(CacheConfig.USERS);
+        if (cache != null) {
+            cache.evict(username);
+        }
+    }
+
+    /**
+     * Stores a rehashed password. Called by the authentication provider after a successful login
+     * when the stored hash was made with a lower cost than the configured one.
+     */
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        user.setPassword(newPassword);
+        User saved = userRepository.save(user);
+        evictUser(saved.getUsername());
+        return saved;
     }
 
-    public UserResponse save(UserRequest userRequest, BindingResult result) throws UsernameAlreadyExists {
+    /**
+     * Registers a user. The checks run on the calling thread, the password is hashed on the password
+     * hashing executor and the user is saved once the hash is ready.
+     */
+    public CompletableFuture<UserResponse> save(UserRequest userRequest, BindingResult result)
+            throws UsernameAlreadyExists, ServiceBusyException {
         if (result.hasErrors()) {
             throw new UsernameAlreadyExists(buildError(result.getAllErrors().toString()));
         }
@@ -63,14 +106,20 @@ public class UserService {
         }
 
         User user = mapUser(userRequest);
-        user.setPassword(bCryptPasswordEncoder.encode(user.getPassword()));
         user.setModifiedAt(LocalDateTime.now());
         user.setCreatedAt(LocalDateTime.now());
         user.setCreatedBy(user.getUsername());
         user.setModifiedBy(user.getUsername());
-        return new UserResponse(userRepository.save(user).getId());
+        return passwordHashingService.encode(user.getPassword()).thenApply(hash -> {
+            user.setPassword(hash);
+            return new UserResponse(userRepository.save(user).getId());
+        });
     }
 
+    /**
+     * The user of the current request. {@link car.app.api.configs.JwtFilter} puts the loaded
+     * {@link User} into the security context, so it is returned as is without another query.
+     */
     public User getAuthenticatedUser() throws UserNotFoundException, AuthenticationException {
         UserDetails userDetails;
         try {
@@ -78,6 +127,9 @@ public class UserService {
         } catch (Exception e){
             throw new AuthenticationException(buildError("error.401.auth"));
         }
+        if (userDetails instanceof User user) {
+            return user;
+        }
         return userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new UserNotFoundException(buildError("error.404.userNotFound")));
     }
 
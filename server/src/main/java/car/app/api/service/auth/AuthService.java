@@ -3,6 +3,7 @@ package car.app.api.service.auth;
 import car.app.api.configs.JwtUtils;
 import car.app.api.controller.model.AuthUserRequest;
 import car.app.api.controller.model.AuthUserResponse;
+import car.app.api.exceptions.ServiceBusyException;
 import car.app.api.exceptions.UsernameAlreadyExists;
 import car.app.api.service.UserService;
 import car.app.api.entities.User;
@@ -14,6 +15,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -21,31 +23,40 @@ public class AuthService {
     public final UserService userService;
     private final AuthenticationManager authenticationManager;
     private final JwtUtils jwtUtils;
+    private final PasswordHashingService passwordHashingService;
     public final MessageSource messageByLocale;
     private final Locale locale = Locale.ENGLISH;
 
-    public AuthUserResponse authenticate(AuthUserRequest request, BindingResult result) throws UsernameAlreadyExists {
+    /**
+     * Checks the credentials on the password hashing executor and issues a token. A hash made with
+     * a lower cost than the configured one is replaced during the check.
+     */
+    public CompletableFuture<AuthUserResponse> authenticate(AuthUserRequest request, BindingResult result)
+            throws UsernameAlreadyExists, ServiceBusyException {
         if (result.hasErrors()) {
             throw new UsernameAlreadyExists(
                     messageByLocale.getMessage(result.getAllErrors().toString(), null, locale)
             );
         }
 
-       try{
-           authenticationManager.authenticate(
-                   new UsernamePasswordAuthenticationToken(
-                           request.getUsername(),
-                           request.getPassword()
-                   )
-           );
-       }catch (Exception e){
-          throw new UsernameNotFoundException("Username cannot authenticate");
-       }
-        User user = userService.getByUsername(request.getUsername());
-        String jwtToken = jwtUtils.generateToken(user);
-        return AuthUserResponse.builder()
-                .accessToken(jwtToken)
-                .username(user.getUsername())
-                .build();
+        return passwordHashingService.submit("authenticate", () -> {
+            try {
+                return authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                request.getUsername(),
+                                request.getPassword()
+                        )
+                );
+            } catch (Exception e) {
+                throw new UsernameNotFoundException("Username cannot authenticate");
+            }
+        }).thenApply(authentication -> {
+            User user = (User) authentication.getPrincipal();
+            String jwtToken = jwtUtils.generateToken(user);
+            return AuthUserResponse.builder()
+                    .accessToken(jwtToken)
+                    .username(user.getUsername())
+                    .build();
+        });
     }
-}
\ No newline at end of file
+}
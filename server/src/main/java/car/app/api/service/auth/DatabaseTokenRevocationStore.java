@@ -0,0 +1,45 @@
+package car.app.api.service.auth;
+
+import car.app.api.entities.RevokedToken;
+import car.app.api.repository.RevokedTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Revoked token ids in the {@code revoked_tokens} table, shared by every node. Each authenticated
+ * request costs one primary key lookup; rows are purged once their tokens have expired.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.security.token-revocation.store", havingValue = "database")
+public class DatabaseTokenRevocationStore implements TokenRevocationStore {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseTokenRevocationStore.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(tokenId, expiresAt));
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        return revokedTokenRepository.existsById(tokenId);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.security.token-revocation.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = revokedTokenRepository.deleteExpiredBefore(Instant.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired token revocations", purged);
+        }
+    }
+}
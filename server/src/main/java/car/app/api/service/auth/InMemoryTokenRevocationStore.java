@@ -0,0 +1,54 @@
+package car.app.api.service.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Revoked token ids in a local cache whose entries expire with their tokens, so it only ever holds
+ * the logouts of one token lifetime. Lookups do not lock. There is deliberately no size bound: an
+ * entry evicted early would make its token usable again.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.token-revocation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+    private final Cache<String, Instant> revokedTokens;
+
+    public InMemoryTokenRevocationStore() {
+        revokedTokens = Caffeine.newBuilder()
+                .expireAfter(new UntilExpiry())
+                .build();
+    }
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        revokedTokens.put(tokenId, expiresAt);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        return revokedTokens.getIfPresent(tokenId) != null;
+    }
+
+    private static final class UntilExpiry implements Expiry<String, Instant> {
+        @Override
+        public long expireAfterCreate(String tokenId, Instant expiresAt, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenId, Instant expiresAt, long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenId, expiresAt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenId, Instant expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package car.app.api.service.auth;
+
+import car.app.api.configs.ExecutorConfig;
+import car.app.api.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.MessageSource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs password work on the bounded password hashing executor. Each task records how long it waited
+ * in the queue as {@code password.hashing.queue} and how long it ran as {@code password.hashing},
+ * both tagged with the operation.
+ */
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    @Qualifier(ExecutorConfig.PASSWORD_HASHING_EXECUTOR)
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final MessageSource messageByLocale;
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) throws ServiceBusyException {
+        return submit("encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Runs a task that hashes or checks a password. Fails at once with {@link ServiceBusyException}
+     * when the executor queue is full, so callers are turned away instead of holding a request thread.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> task) throws ServiceBusyException {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                meterRegistry.timer("password.hashing.queue", "operation", operation)
+                        .record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    meterRegistry.timer("password.hashing", "operation", operation)
+                            .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, executor);
+        } catch (TaskRejectedException e) {
+            meterRegistry.counter("password.hashing.rejected", "operation", operation).increment();
+            throw new ServiceBusyException(messageByLocale.getMessage("error.503.passwordHashingBusy", null, Locale.ENGLISH));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package car.app.api.service.auth;
+
+import java.time.Instant;
+
+/**
+ * Remembers logged-out tokens by their id ({@code jti}) until they would have expired anyway, after
+ * which the signature check rejects them on its own. The backend is chosen with
+ * {@code app.security.token-revocation.store}: {@code memory} for a single node, {@code database}
+ * when several nodes have to see the same logouts.
+ */
+public interface TokenRevocationStore {
+    void revoke(String tokenId, Instant expiresAt);
+
+    boolean isRevoked(String tokenId);
+}
@@ -0,0 +1,170 @@
+package car.app.api;
+
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.enums.AdvertIndex;
+import car.app.api.enums.Fuel;
+import car.app.api.enums.PostType;
+import car.app.api.enums.Transmission;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load comparison of request handling on Tomcat's platform thread pool against virtual threads, on the
+ * H2 test database. Half of the requests list posts from the database, the other half look up car
+ * models from a stub of the remote car API that answers after {@code remoteLatency}, with the car
+ * models cache switched off and a different page each time so every lookup blocks on it.
+ * <p>
+ * Run {@link #main} with the test classpath after {@code mvn -pl server test-compile}, on Java 21 for
+ * the virtual mode: {@code ThreadingLoadBenchmark [platform|virtual ...] [concurrency] [seconds] [remoteLatencyMillis]}.
+ */
+public class ThreadingLoadBenchmark {
+    private static final String STUB_RESPONSE = "{\"total_count\":1,\"results\":[{\"make\":\"Audi\",\"model\":\"A4\"}]}";
+
+    public static void main(String[] args) throws Exception {
+        List<String> modes = args.length > 0 ? List.of(args[0].split(",")) : List.of("platform", "virtual");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 20);
+        Duration remoteLatency = Duration.ofMillis(args.length > 3 ? Long.parseLong(args[3]) : 50);
+
+        HttpServer remoteApi = startRemoteApiStub(remoteLatency);
+        try {
+            for (String mode : modes) {
+                if (mode.equals("virtual") && Runtime.version().feature() < 21) {
+                    System.out.println("virtual: skipped, needs Java 21");
+                    continue;
+                }
+                System.out.println(run(mode, remoteApi.getAddress().getPort(), concurrency, duration));
+            }
+        } finally {
+            remoteApi.stop(0);
+        }
+    }
+
+    private static String run(String mode, int remoteApiPort, int concurrency, Duration duration) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ServerApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--app.cache.car-models.maximum-size=0",
+                        "--app.web.carsApiClient.baseUrl=http://localhost:" + remoteApiPort + "/records")) {
+            seedPosts(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+
+            drive(baseUrl, concurrency, Duration.ofSeconds(5));
+            Result result = drive(baseUrl, concurrency, duration);
+            return String.format("%s: concurrency=%d requests=%d errors=%d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms",
+                    mode, concurrency, result.latencies.size(), result.errors,
+                    result.latencies.size() / (double) duration.toSeconds(),
+                    result.percentile(0.50) / 1e6, result.percentile(0.99) / 1e6);
+        }
+    }
+
+    private static Result drive(String baseUrl, int concurrency, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            int worker = i;
+            futures.add(workers.submit(() -> {
+                List<Long> latencies = new ArrayList<>();
+                for (int n = worker; System.nanoTime() < deadline; n++) {
+                    URI uri = URI.create(n % 2 == 0 ? baseUrl + "/api/post/all?page=0&size=20"
+                            : baseUrl + "/api/car/models?brand=Audi&limit=100&offset=" + (1 + n % 10_000));
+                    HttpRequest request = HttpRequest.newBuilder(uri).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) {
+                            latencies.add(System.nanoTime() - start);
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                return latencies;
+            }));
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            latencies.addAll(future.get());
+        }
+        workers.shutdown();
+        Collections.sort(latencies);
+        return new Result(latencies, errors.get());
+    }
+
+    private static void seedPosts(ConfigurableApplicationContext context) {
+        PostRepository postRepository = context.getBean(PostRepository.class);
+        User user = context.getBean(UserRepository.class).save(new User("load", "password", "First", "Last",
+                "Tirana", "Albania", null, null, null, "USER"));
+        for (int i = 0; i < 200; i++) {
+            Post post = new Post();
+            post.setUser(user);
+            post.setTitle("Post " + i);
+            post.setBrand("Audi");
+            post.setFuel(Fuel.DIESEL);
+            post.setTransmission(Transmission.values()[i % Transmission.values().length]);
+            post.setPostType(PostType.values()[i % PostType.values().length]);
+            post.setPostAdvertIndex(AdvertIndex.FREE);
+            post.setPrice(BigDecimal.valueOf(1000 + i));
+            post.setFirstRegistration(2000 + i % 20);
+            post.setKilometers(i * 1000);
+            post.setCreatedAt(LocalDateTime.now().minusMinutes(i));
+            post.setModifiedAt(post.getCreatedAt());
+            postRepository.save(post);
+        }
+    }
+
+    private static HttpServer startRemoteApiStub(Duration latency) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        byte[] body = STUB_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        server.createContext("/records", exchange -> {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private record Result(List<Long> latencies, long errors) {
+        double percentile(double p) {
+            return latencies.isEmpty() ? 0 : latencies.get((int) Math.min(latencies.size() - 1, p * latencies.size()));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package car.app.api.configs;
+
+import car.app.api.entities.User;
+import car.app.api.service.auth.InMemoryTokenRevocationStore;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.naming.AuthenticationException;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilsTests {
+    private static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final User USER = new User("driver", "password", "First", "Last",
+            "Tirana", "Albania", null, null, null, "USER");
+
+    @Test
+    void verifyReturnsSubjectRolesAndExpiryFromOneParse() {
+        JwtUtils jwtUtils = jwtUtils(86_400_000L, false);
+
+        VerifiedToken verified = jwtUtils.verify(jwtUtils.generateToken(USER));
+
+        assertEquals("driver", verified.subject());
+        assertEquals(List.of("ROLE_USER"), verified.roles());
+    }
+
+    @Test
+    void cachedTokensAreVerifiedOnceAndStillRejectTamperingAndExpiry() {
+        JwtUtils jwtUtils = jwtUtils(86_400_000L, true);
+        String token = jwtUtils.generateToken(USER);
+
+        assertSame(jwtUtils.verify(token), jwtUtils.verify(token));
+        assertThrows(JwtException.class, () -> jwtUtils.verify(token.substring(0, token.length() - 2) + "xx"));
+
+        JwtUtils expiring = jwtUtils(-1_000L, true);
+        assertThrows(ExpiredJwtException.class, () -> expiring.verify(expiring.generateToken(USER)));
+    }
+
+    @Test
+    void logoutRevokesOnlyThatTokenUntilItExpires() throws Exception {
+        JwtUtils jwtUtils = jwtUtils(86_400_000L, true);
+        String loggedOut = jwtUtils.generateToken(USER);
+        String other = jwtUtils.generateToken(USER);
+
+        jwtUtils.handleLogout(loggedOut);
+        jwtUtils.handleLogout("not a token");
+
+        assertThrows(AuthenticationException.class, () -> jwtUtils.checkNotRevoked(jwtUtils.verify(loggedOut)));
+        jwtUtils.checkNotRevoked(jwtUtils.verify(other));
+    }
+
+    @Test
+    void revocationsAreForgottenOnceTheTokenHasExpired() {
+        InMemoryTokenRevocationStore store = new InMemoryTokenRevocationStore();
+
+        store.revoke("expired", Instant.now().minusSeconds(1));
+        store.revoke("valid", Instant.now().plusSeconds(60));
+
+        assertFalse(store.isRevoked("expired"));
+        assertTrue(store.isRevoked("valid"));
+    }
+
+    @Test
+    void revocationsAreKeptUntilTheTokenExpiresHoweverManyThereAre() {
+        InMemoryTokenRevocationStore store = new InMemoryTokenRevocationStore();
+
+        for (int i = 0; i < 200_000; i++) {
+            store.revoke("token-" + i, Instant.now().plusSeconds(60));
+        }
+
+        for (int i = 0; i < 200_000; i++) {
+            assertTrue(store.isRevoked("token-" + i));
+        }
+    }
+
+    private static JwtUtils jwtUtils(long expiration, boolean verifiedCacheEnabled) {
+        JwtUtils jwtUtils = new JwtUtils(new InMemoryTokenRevocationStore());
+        ReflectionTestUtils.setField(jwtUtils, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiration", expiration);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheEnabled", verifiedCacheEnabled);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheMaximumSize", 100L);
+        jwtUtils.afterPropertiesSet();
+        return jwtUtils;
+    }
+}
@@ -0,0 +1,97 @@
+package car.app.api.configs;
+
+import car.app.api.entities.User;
+import car.app.api.service.auth.InMemoryTokenRevocationStore;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token in {@link JwtFilter}: the previous path, which
+ * rebuilt the key and parser and parsed the token twice, against {@link JwtUtils#verify} with and
+ * without the verified-token cache. Run {@link #main} from the IDE or with the test classpath after
+ * {@code mvn -pl server test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+    private static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtUtils jwtUtils;
+    private JwtUtils cachingJwtUtils;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtils = jwtUtils(false);
+        cachingJwtUtils = jwtUtils(true);
+        token = jwtUtils.generateToken(new User("benchmark", "password", "First", "Last",
+                "Tirana", "Albania", null, null, null, "USER"));
+    }
+
+    @Benchmark
+    public boolean legacyGetSubjectAndValidate() {
+        String subject = legacyClaims(token).getSubject();
+        return subject != null && legacyClaims(token).getExpiration().after(new Date());
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return jwtUtils.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return cachingJwtUtils.verify(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(legacySigningKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static Key legacySigningKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+    }
+
+    private static JwtUtils jwtUtils(boolean verifiedCacheEnabled) {
+        JwtUtils jwtUtils = new JwtUtils(new InMemoryTokenRevocationStore());
+        ReflectionTestUtils.setField(jwtUtils, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheEnabled", verifiedCacheEnabled);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheMaximumSize", 10_000L);
+        jwtUtils.afterPropertiesSet();
+        return jwtUtils;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,145 @@
+package car.app.api.migration;
+
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.ImageUpload;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.projection.StoredImage;
+import car.app.api.storage.DatabaseImageStore;
+import car.app.api.storage.FileSystemImageStore;
+import car.app.api.storage.ImageStores;
+import car.app.api.utils.ImageUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({ImageStorageMigration.class, ImageStores.class, DatabaseImageStore.class, FileSystemImageStore.class})
+@TestPropertySource(properties = {"app.images.storage.migrate=true", "app.images.storage.type=FILESYSTEM",
+        "app.images.storage.migrate.batch-size=2"})
+class ImageStorageMigrationTests {
+    @TempDir
+    static Path root;
+
+    @Autowired
+    private ImageStorageMigration imageStorageMigration;
+    @Autowired
+    private ImageStores imageStores;
+    @Autowired
+    private ImageUploadRepository imageUploadRepository;
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @DynamicPropertySource
+    static void storageRoot(DynamicPropertyRegistry registry) {
+        registry.add("app.images.storage.filesystem.root", () -> root.toString());
+    }
+
+    @Test
+    void databaseImagesMoveToTheFileSystemAndARerunChangesNothing() throws IOException {
+        byte[] inline = content(1);
+        byte[] shared = content(2);
+        String legacy = saveInline(inline);
+        List<String> sharing = saveInDatabaseBlob(shared, 2);
+
+        imageStorageMigration.run(new DefaultApplicationArguments());
+
+        for (String id : List.of(legacy, sharing.get(0), sharing.get(1))) {
+            ImageUpload imageUpload = imageUploadRepository.findById(id).orElseThrow();
+            assertEquals(ImageStorage.FILESYSTEM, imageUpload.getStorage());
+            assertNull(imageUpload.getProfileImage());
+        }
+        assertArrayEquals(inline, read(legacy));
+        assertArrayEquals(shared, read(sharing.get(1)));
+        assertEquals(ImageUtil.sha256Hex(inline), imageUploadRepository.findById(legacy).orElseThrow().getContentHash());
+        assertEquals(1, blob(ImageUtil.sha256Hex(inline), ImageStorage.FILESYSTEM).getReferenceCount());
+        assertEquals(2, blob(ImageUtil.sha256Hex(shared), ImageStorage.FILESYSTEM).getReferenceCount());
+        ImageBlob databaseBlob = blob(ImageUtil.sha256Hex(shared), ImageStorage.DATABASE);
+        assertEquals(0, databaseBlob.getReferenceCount());
+        assertNotNull(databaseBlob.getUnreferencedAt());
+
+        imageStorageMigration.run(new DefaultApplicationArguments());
+
+        assertTrue(imageUploadRepository.findIdsToMigrate(ImageStorage.FILESYSTEM, "", PageRequest.of(0, 10)).isEmpty());
+        assertEquals(3, imageBlobRepository.count());
+        assertEquals(2, blob(ImageUtil.sha256Hex(shared), ImageStorage.FILESYSTEM).getReferenceCount());
+        assertArrayEquals(shared, read(sharing.get(0)));
+    }
+
+    private String saveInline(byte[] content) {
+        ImageUpload imageUpload = new ImageUpload();
+        imageUpload.storeProfileImage(content);
+        imageUpload.setStorage(ImageStorage.DATABASE);
+        imageUpload.setCreatedAt(LocalDateTime.now());
+        return imageUploadRepository.save(imageUpload).getId();
+    }
+
+    private List<String> saveInDatabaseBlob(byte[] content, int references) throws IOException {
+        String contentHash = ImageUtil.sha256Hex(content);
+        List<ImageUpload> imageUploads = new ArrayList<>();
+        ImageBlob blob = null;
+        for (int i = 0; i < references; i++) {
+            ImageUpload imageUpload = new ImageUpload();
+            imageUpload.setContentHash(contentHash);
+            imageUpload.setContentType("application/octet-stream");
+            imageUpload.setContentLength((long) content.length);
+            imageUpload.setCreatedAt(LocalDateTime.now());
+            blob = imageStores.get(ImageStorage.DATABASE).write(imageUpload, content);
+            imageUploads.add(imageUpload);
+        }
+        blob.setReferenceCount(references);
+        blob.setUnreferencedAt(null);
+        imageBlobRepository.save(blob);
+        return imageUploadRepository.saveAll(imageUploads).stream().map(ImageUpload::getId).toList();
+    }
+
+    private byte[] read(String id) throws IOException {
+        StoredImage storedImage = imageUploadRepository.findStoredImageById(id).orElseThrow();
+        try (InputStream inputStream = imageStores.get(storedImage.getStorage()).openStream(storedImage)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private ImageBlob blob(String contentHash, ImageStorage storage) {
+        return imageBlobRepository.findAll().stream()
+                .filter(blob -> blob.getContentHash().equals(contentHash) && blob.getStorage() == storage)
+                .findFirst().orElseThrow();
+    }
+
+    private static byte[] content(long seed) {
+        byte[] content = new byte[2048];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,99 @@
+package car.app.api.service;
+
+import car.app.api.controller.model.CarModels;
+import car.app.api.repository.CarCatalogModelRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CarCatalogServiceTests {
+    @Autowired
+    private CarCatalogService carCatalogService;
+    @Autowired
+    private CarCatalogModelRepository carCatalogModelRepository;
+    @MockBean
+    private CarInfoService carInfoService;
+
+    @Test
+    void brandsComeFromTheSeededCatalog() {
+        List<String> brands = carCatalogService.getCarBrands(null).getBrands();
+        assertTrue(brands.containsAll(CarCatalogService.DEFAULT_BRANDS));
+        assertEquals(List.of("Lancia", "Land Rover", "Landwind"), carCatalogService.getCarBrands("lan").getBrands());
+    }
+
+    @Test
+    void unknownBrandFallsBackToRemoteOnceAndIsServedLocallyAfterwards() throws Exception {
+        when(carInfoService.getCarModels("100", "0", "Polestar"))
+                .thenReturn(new CarModels(new LinkedHashSet<>(List.of("Polestar 2", "Polestar 1", "Polestar 3"))));
+
+        CarModels first = carCatalogService.getCarModels("100", "0", "Polestar", null);
+        CarModels second = carCatalogService.getCarModels("100", "0", "polestar", null);
+
+        assertEquals(List.of("Polestar 1", "Polestar 2", "Polestar 3"), List.copyOf(first.getModels()));
+        assertEquals(first.getModels(), second.getModels());
+        verify(carInfoService, times(1)).getCarModels("100", "0", "Polestar");
+        assertEquals(3, carCatalogModelRepository.findAllByBrand("Polestar").size());
+        assertTrue(carCatalogService.getCarBrands("pole").getBrands().contains("Polestar"));
+    }
+
+    @Test
+    void syncedBrandAnswersPrefixQueriesWithoutRemoteCalls() throws Exception {
+        carCatalogService.replaceModels("audi", List.of("A4", "A6", "Q5", "A3", "Q7"));
+
+        CarModels suggestions = carCatalogService.getCarModels("100", "0", "Audi", "q");
+
+        assertEquals(Set.of("Q5", "Q7"), suggestions.getModels());
+        assertEquals(List.of("A3", "A4", "A6", "Q5", "Q7"),
+                List.copyOf(carCatalogService.getCarModels("100", "0", "AUDI", null).getModels()));
+        assertEquals(1, carCatalogModelRepository.findAllByBrand("Audi").stream().filter(m -> m.getModel().equals("A4")).count());
+        verifyNoInteractions(carInfoService);
+    }
+
+    @Test
+    void concurrentColdLookupsFetchAndStoreTheBrandOnce() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        when(carInfoService.getCarModels("100", "0", "Rivian")).thenAnswer(invocation -> {
+            fetching.countDown();
+            Thread.sleep(100);
+            return new CarModels(new LinkedHashSet<>(List.of("R1T", "R1S", "R2")));
+        });
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CarModels>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(executorService.submit(() -> carCatalogService.getCarModels("100", "0", "Rivian", null)));
+            }
+            fetching.await();
+            carCatalogService.replaceModels("Rivian", List.of("R1T", "R1S", "R2"));
+
+            for (Future<CarModels> lookup : lookups) {
+                assertEquals(List.of("R1S", "R1T", "R2"), List.copyOf(lookup.get(10, TimeUnit.SECONDS).getModels()));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        verify(carInfoService, times(1)).getCarModels("100", "0", "Rivian");
+        assertEquals(3, carCatalogModelRepository.findAllByBrand("Rivian").size());
+    }
+}
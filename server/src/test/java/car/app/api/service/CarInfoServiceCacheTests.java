@@ -0,0 +1,95 @@
+package car.app.api.service;
+
+import car.app.api.client.CarsApiClient;
+import car.app.api.model.ManufacturerInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CarInfoServiceCacheTests {
+    private static final Set<Thread.State> PARKED = EnumSet.of(Thread.State.BLOCKED, Thread.State.WAITING,
+            Thread.State.TIMED_WAITING);
+
+    @Autowired
+    private CarInfoService carInfoService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockBean
+    private CarsApiClient carsApiClient;
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(carsApiClient.getAllCarModels(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return manufacturerInfo("A4", "A6");
+        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Thread> callers = new CopyOnWriteArrayList<>();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executorService.submit(() -> {
+                    callers.add(Thread.currentThread());
+                    return carInfoService.getCarModels("100", "0", "Audi");
+                }));
+            }
+            // Release the load only once every caller is parked behind it.
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            await().atMost(Duration.ofSeconds(5)).until(() -> callers.size() == 8
+                    && callers.stream().map(Thread::getState).allMatch(PARKED::contains));
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(List.of("A4", "A6"), List.copyOf(carInfoService.getCarModels("100", "0", "Audi").getModels()));
+        verify(carsApiClient, times(1)).getAllCarModels("100", "0", "Audi");
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", "carModels").tag("result", "hit").functionCounter()
+                .count() > 0);
+    }
+
+    private static ManufacturerInfo manufacturerInfo(String... models) {
+        ManufacturerInfo manufacturerInfo = new ManufacturerInfo();
+        manufacturerInfo.setTotal_count(models.length);
+        List<ManufacturerInfo.Result> results = new ArrayList<>();
+        for (String model : models) {
+            ManufacturerInfo.Result result = new ManufacturerInfo.Result();
+            result.setModel(model);
+            results.add(result);
+        }
+        manufacturerInfo.setResults(results);
+        return manufacturerInfo;
+    }
+}
@@ -0,0 +1,136 @@
+package car.app.api.service;
+
+import car.app.api.client.CarsApiClient;
+import car.app.api.controller.model.CarModels;
+import car.app.api.model.ManufacturerInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CarInfoServiceFanOutTests {
+    private static final int PAGES = 10;
+
+    private final CarsApiClient carsApiClient = mock(CarsApiClient.class);
+    private ExecutorService executorService;
+    private CarInfoService carInfoService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(PAGES);
+        carInfoService = new CarInfoService(carsApiClient, executorService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(carInfoService, "maxConcurrency", 3);
+        ReflectionTestUtils.setField(carInfoService, "timeout", Duration.ofSeconds(5));
+        when(carsApiClient.getAllCarModels("10", "0", "Audi")).thenReturn(page(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void noMoreThanMaxConcurrencyPagesAreInFlight() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+        when(carsApiClient.getAllCarModels(eq("10"), argThat(offset -> !offset.equals("0")), eq("Audi"))).thenAnswer(invocation -> {
+            mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return page(Integer.parseInt(invocation.getArgument(1)));
+        });
+
+        CarModels carModels = carInfoService.loadCarModels("10", "0", "Audi");
+
+        assertEquals(PAGES * 10, carModels.getModels().size());
+        assertEquals(3, mostInFlight.get());
+    }
+
+    @Test
+    void theLookupFailsOnceTheTimeoutPassesAndCancelsTheOutstandingPages() {
+        ReflectionTestUtils.setField(carInfoService, "timeout", Duration.ofMillis(200));
+        CountDownLatch cancelled = blockOtherPages(null);
+
+        long start = System.nanoTime();
+        Exception exception = assertThrows(Exception.class, () -> carInfoService.loadCarModels("10", "0", "Audi"));
+
+        assertEquals("Timed out retrieving car info", exception.getMessage());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertAwait(cancelled);
+    }
+
+    @Test
+    void aFailingPageCancelsTheOutstandingPages() {
+        CountDownLatch cancelled = blockOtherPages("1");
+
+        Exception exception = assertThrows(Exception.class, () -> carInfoService.loadCarModels("10", "0", "Audi"));
+
+        assertEquals("Error on retrieving car info", exception.getMessage());
+        assertAwait(cancelled);
+    }
+
+    /**
+     * Makes every page but the first block until it is interrupted, except {@code failingOffset},
+     * which fails once the other pages in flight have started. The returned latch counts down once
+     * per interrupted page.
+     */
+    private CountDownLatch blockOtherPages(String failingOffset) {
+        int blocking = failingOffset == null ? 3 : 2;
+        CountDownLatch started = new CountDownLatch(blocking);
+        CountDownLatch cancelled = new CountDownLatch(blocking);
+        when(carsApiClient.getAllCarModels(eq("10"), argThat(offset -> !offset.equals("0")), eq("Audi"))).thenAnswer(invocation -> {
+            if (invocation.getArgument(1).equals(failingOffset)) {
+                started.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("page failed");
+            }
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+                throw e;
+            }
+            return page(0);
+        });
+        return cancelled;
+    }
+
+    private static void assertAwait(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ManufacturerInfo page(int page) {
+        ManufacturerInfo manufacturerInfo = new ManufacturerInfo();
+        manufacturerInfo.setTotal_count(PAGES * 10);
+        List<ManufacturerInfo.Result> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ManufacturerInfo.Result result = new ManufacturerInfo.Result();
+            result.setModel("Model " + page + "-" + i);
+            results.add(result);
+        }
+        manufacturerInfo.setResults(results);
+        return manufacturerInfo;
+    }
+}
@@ -0,0 +1,166 @@
+package car.app.api.service;
+
+import car.app.api.configs.CacheConfig;
+import car.app.api.controller.model.FavoriteDetails;
+import car.app.api.controller.model.PostDetails;
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.exceptions.FavoritesCustomException;
+import car.app.api.repository.FavoriteRepository;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import car.app.api.service.auth.PasswordHashingService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.MessageSourceAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({FavoritesService.class, FavoriteIndex.class, PostService.class, SearchService.class, UserService.class, CacheConfig.class})
+@ImportAutoConfiguration(MessageSourceAutoConfiguration.class)
+class FavoritesServiceTests {
+
+    @Autowired
+    private FavoritesService favoritesService;
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private FavoriteRepository favoriteRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private ImageUploadService imageUploadService;
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    private Statistics statistics;
+    private User alice;
+    private User bob;
+    private List<String> postIds;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        alice = userRepository.save(new User("alice", "password", "First", "Last", "Tirana", "Albania", null, null, null, "USER"));
+        bob = userRepository.save(new User("bob", "password", "First", "Last", "Tirana", "Albania", null, null, null, "USER"));
+        postIds = List.of(createPost(bob, 1), createPost(bob, 2), createPost(alice, 3));
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void favoritesBelongToTheUserWhoAddedThem() throws Throwable {
+        authenticate(alice);
+        favoritesService.add(postIds.get(0));
+        favoritesService.add(postIds.get(0));
+
+        assertEquals(1, favoriteRepository.count());
+        assertEquals(List.of(postIds.get(0)), favoritesService.show(0, 20).map(FavoriteDetails::getId).getContent());
+        authenticate(bob);
+        assertThrows(FavoritesCustomException.class, () -> favoritesService.show(0, 20));
+        assertThrows(FavoritesCustomException.class, () -> favoritesService.add("missing"));
+    }
+
+    @Test
+    void removingAFavoriteTwiceChangesNothing() throws Throwable {
+        authenticate(alice);
+        favoritesService.add(postIds.get(1));
+
+        favoritesService.remove(postIds.get(1));
+        favoritesService.remove(postIds.get(1));
+
+        assertEquals(0, favoriteRepository.count());
+        assertThrows(FavoritesCustomException.class, () -> favoritesService.remove("missing"));
+    }
+
+    @Test
+    void listingsMarkTheFavoritesOfTheCurrentUserFromTheCachedIds() throws Throwable {
+        postService.findAll(0, 20);
+        statistics.clear();
+        postService.findAll(0, 20);
+        long anonymousStatements = statistics.getPrepareStatementCount();
+        authenticate(alice);
+        favoritesService.add(postIds.get(1));
+        postService.findAll(0, 20);
+
+        statistics.clear();
+        assertEquals(List.of(postIds.get(1)), favoriteIds(postService.findAll(0, 20).getContent()));
+        assertEquals(anonymousStatements, statistics.getPrepareStatementCount());
+
+        authenticate(bob);
+        assertEquals(List.of(), favoriteIds(postService.findAll(0, 20).getContent()));
+        SecurityContextHolder.clearContext();
+        assertEquals(List.of(), favoriteIds(postService.findAll(0, 20).getContent()));
+    }
+
+    @Test
+    void deletedPostsAndUsersTakeTheirFavoritesAlong() throws Throwable {
+        authenticate(alice);
+        favoritesService.add(postIds.get(0));
+        favoritesService.add(postIds.get(2));
+        authenticate(bob);
+        favoritesService.add(postIds.get(2));
+
+        postService.deleteById(postIds.get(0));
+        assertEquals(2, favoriteRepository.count());
+
+        SecurityContextHolder.clearContext();
+        postService.deleteById(postIds.get(1));
+        postService.deleteById(postIds.get(2));
+        authenticate(bob);
+        favoritesService.add(createPost(alice, 4));
+        assertEquals(1, favoriteRepository.count());
+        userService.deleteUser(bob.getId());
+        assertEquals(0, favoriteRepository.count());
+    }
+
+    private static List<String> favoriteIds(List<PostDetails> posts) {
+        return posts.stream().filter(PostDetails::isFavorite).map(PostDetails::getId).toList();
+    }
+
+    private static void authenticate(User user) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private String createPost(User user, int number) {
+        Post post = new Post();
+        post.setTitle("Post " + number);
+        post.setUser(user);
+        post.setCreatedAt(LocalDateTime.now().minusMinutes(number));
+        return postRepository.save(post).getId();
+    }
+}
@@ -0,0 +1,141 @@
+package car.app.api.service;
+
+import car.app.api.ServerApplication;
+import car.app.api.controller.model.PostRequest;
+import car.app.api.controller.model.PostResponse;
+import car.app.api.entities.ImageUpload;
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.enums.ImageStorage;
+import car.app.api.exceptions.ImageCustomException;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import car.app.api.utils.ImageFormat;
+import car.app.api.utils.ImageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating a post with 10 images on the H2 test database. {@code postWithImages} is the
+ * current path: one decode per image and all rows in one transaction and JDBC batch, with
+ * {@code batchSize=1} turning batching off, and the thumbnails left to the background pipeline,
+ * whose queue is unbounded here so the loop is not turned away. {@code perImageSaves} replays the
+ * former path, which decoded each image twice, made its thumbnail and saved every row in its own
+ * transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageUploadBenchmark {
+    private static final int IMAGES = 10;
+
+    @Param({"1", "25"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private PostService postService;
+    private PostRepository postRepository;
+    private ImageUploadRepository imageUploadRepository;
+    private User user;
+    private List<String> images;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(ServerApplication.class)
+                .profiles("test")
+                .run("--server.port=0", "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "--app.images.processing.executor.queue-capacity=1000000");
+        postService = context.getBean(PostService.class);
+        postRepository = context.getBean(PostRepository.class);
+        imageUploadRepository = context.getBean(ImageUploadRepository.class);
+        user = context.getBean(UserRepository.class).save(new User("benchmark", "password", "First", "Last",
+                "Tirana", "Albania", null, null, null, "USER"));
+
+        Random random = new Random(42);
+        images = new ArrayList<>();
+        for (int i = 0; i < IMAGES; i++) {
+            BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < image.getHeight(); y += 4) {
+                for (int x = 0; x < image.getWidth(); x += 4) {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", outputStream);
+            images.add(Base64.getEncoder().encodeToString(outputStream.toByteArray()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PostResponse postWithImages() throws Exception {
+        return postService.save(new PostRequest(), user, images, new BeanPropertyBindingResult(new PostRequest(), "postRequest"));
+    }
+
+    @Benchmark
+    public String perImageSaves() throws Exception {
+        Post post = new Post();
+        post.setUser(user);
+        post.setCreatedAt(LocalDateTime.now());
+        post = postRepository.save(post);
+        for (String encoded : images) {
+            byte[] validated = Base64.getDecoder().decode(encoded);
+            if (!encoded.equals(Base64.getEncoder().encodeToString(validated))) {
+                throw new ImageCustomException("not base64");
+            }
+            byte[] image = Base64.getDecoder().decode(encoded);
+            ImageUpload imageUpload = new ImageUpload();
+            imageUpload.setPost(post);
+            imageUpload.setThumbnail(ImageUtil.createThumbnail(image));
+            imageUpload.setContentType(ImageFormat.detect(image).getMediaType());
+            imageUpload.setContentHash(ImageUtil.sha256Hex(image));
+            imageUpload.setContentLength((long) image.length);
+            imageUpload.storeProfileImage(image);
+            imageUpload.setStorage(ImageStorage.DATABASE);
+            imageUpload.setCreatedAt(LocalDateTime.now());
+            imageUploadRepository.save(imageUpload);
+        }
+        return post.getId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ImageUploadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,377 @@
+package car.app.api.service;
+
+import car.app.api.configs.CacheConfig;
+import car.app.api.configs.ExecutorConfig;
+import car.app.api.controller.model.ImageDetails;
+import car.app.api.controller.model.PostRequest;
+import car.app.api.controller.model.ImageStatusResponse;
+import car.app.api.controller.model.PostResponse;
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.ImageUpload;
+import car.app.api.entities.User;
+import car.app.api.enums.ImageSize;
+import car.app.api.enums.ImageStatus;
+import car.app.api.enums.ImageStorage;
+import car.app.api.exceptions.ImageCustomException;
+import car.app.api.exceptions.ImageNotFoundException;
+import car.app.api.exceptions.ServiceBusyException;
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import car.app.api.repository.projection.ImageBlobStats;
+import car.app.api.storage.DatabaseImageStore;
+import car.app.api.storage.FileSystemImageStore;
+import car.app.api.storage.ImageStores;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.MessageSourceAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({PostService.class, SearchService.class, ImageUploadService.class, CacheConfig.class, FavoriteIndex.class,
+        ImageStores.class, DatabaseImageStore.class, FileSystemImageStore.class, ImageProcessingService.class,
+        ExecutorConfig.class, SimpleMeterRegistry.class, ImageBlobCollector.class})
+@ImportAutoConfiguration(MessageSourceAutoConfiguration.class)
+@TestPropertySource(properties = {"app.images.processing.executor.pool-size=1",
+        "app.images.processing.executor.queue-capacity=10", "app.images.processing.max-pixels=3000000",
+        "app.images.storage.reclaim.grace=PT0S"})
+class ImageUploadServiceTests {
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private ImageUploadService imageUploadService;
+    @Autowired
+    private ImageProcessingService imageProcessingService;
+    @Autowired
+    @Qualifier(ExecutorConfig.IMAGE_PROCESSING_EXECUTOR)
+    private ThreadPoolTaskExecutor imageProcessingExecutor;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageUploadRepository imageUploadRepository;
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+    @Autowired
+    private ImageBlobCollector imageBlobCollector;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepository.save(new User("uploader", "password", "First", "Last", "Tirana", "Albania", null, null, null, "USER"));
+    }
+
+    @Test
+    void imagesOfAPostAreInsertedInOneBatch() throws Throwable {
+        CountDownLatch release = new CountDownLatch(1);
+        imageProcessingExecutor.execute(() -> awaitQuietly(release));
+        long twoImages = savePostStatements(images(2));
+        long eightImages = savePostStatements(images(8));
+        release.countDown();
+
+        assertEquals(twoImages, eightImages);
+        assertEquals(10, imageUploadRepository.count());
+    }
+
+    @Test
+    void aRejectedImageRollsBackThePost() {
+        List<String> images = List.of(images(1).get(0), "not base64!");
+
+        assertThrows(ImageCustomException.class, () -> postService.save(new PostRequest(), user, images, bindingResult()));
+        assertEquals(0, postRepository.findAll(PageRequest.of(0, 1)).getTotalElements());
+        assertEquals(0, imageUploadRepository.count());
+    }
+
+    @Test
+    void onlyPaddedStandardBase64IsAccepted() throws Throwable {
+        assertEquals(3, imageUploadService.decodeImages(List.of("AQID")).get(0).length);
+        assertThrows(ImageCustomException.class, () -> imageUploadService.decodeImages(List.of("AQI")));
+        assertThrows(ImageCustomException.class, () -> imageUploadService.decodeImages(List.of("AQID", "A-_B")));
+    }
+
+    @Test
+    void uploadedImagesAreAttachedWhenThePostIsCreated() throws Throwable {
+        List<String> imageIds = imageUploadService.uploadImages(List.of(png("one.png"), png("two.png")), user)
+                .stream().map(ImageDetails::getId).toList();
+        PostRequest postRequest = new PostRequest();
+        postRequest.setImageIds(imageIds);
+
+        PostResponse post = postService.save(postRequest, user, null, bindingResult());
+
+        assertEquals(2, imageUploadRepository.findReferencesByPostIdIn(List.of(post.getId())).size());
+        assertEquals("image/png", imageUploadService.getImageContent(imageIds.get(0)).getContentType());
+    }
+
+    @Test
+    void imagesOfAnotherUserOrPostCannotBeAttached() throws Throwable {
+        User other = userRepository.save(new User("other", "password", "First", "Last", "Tirana", "Albania", null, null, null, "USER"));
+        String imageId = imageUploadService.uploadImages(List.of(png("one.png")), other).get(0).getId();
+        PostRequest postRequest = new PostRequest();
+        postRequest.setImageIds(List.of(imageId));
+
+        assertThrows(ImageCustomException.class, () -> postService.save(postRequest, user, null, bindingResult()));
+        postService.save(postRequest, other, null, bindingResult());
+        assertThrows(ImageCustomException.class, () -> postService.save(postRequest, other, null, bindingResult()));
+        assertEquals(1, postRepository.findAll(PageRequest.of(0, 1)).getTotalElements());
+    }
+
+    @Test
+    void uploadsThatAreNotImagesAreRejected() {
+        MockMultipartFile text = new MockMultipartFile("images", "notes.txt", "text/plain", "not an image".getBytes());
+
+        assertThrows(ImageCustomException.class, () -> imageUploadService.uploadImages(List.of(text), user));
+        assertEquals(0, imageUploadRepository.count());
+    }
+
+    @Test
+    void uploadedImagesAreResizedInTheBackground() throws Throwable {
+        String imageId = imageUploadService.uploadImages(List.of(png("wide.png", 2100, 1000)), user).get(0).getId();
+
+        ImageStatusResponse status = awaitStatus(imageId, ImageStatus.READY);
+
+        assertEquals(2100, status.getWidth());
+        assertEquals(1000, status.getHeight());
+        assertEquals(List.of("small", "medium", "large"), List.copyOf(status.getSizes().keySet()));
+        assertEquals(320, ImageIO.read(new ByteArrayInputStream(imageUploadService.getDerivative(imageId, ImageSize.SMALL))).getWidth());
+        assertEquals(2048, ImageIO.read(new ByteArrayInputStream(imageUploadService.getDerivative(imageId, ImageSize.LARGE))).getWidth());
+        assertArrayEquals(imageUploadService.getDerivative(imageId, ImageSize.SMALL), imageUploadService.getThumbnail(imageId).orElseThrow());
+        assertEquals("image/png", imageUploadService.getImageContent(imageId).getContentType());
+    }
+
+    @Test
+    void smallImagesAreOnlyReencodedAtTheirOwnSize() throws Throwable {
+        String imageId = imageUploadService.uploadImages(List.of(png("small.png", 200, 100)), user).get(0).getId();
+
+        ImageStatusResponse status = awaitStatus(imageId, ImageStatus.READY);
+
+        assertEquals(List.of("small"), List.copyOf(status.getSizes().keySet()));
+        assertEquals(200, ImageIO.read(new ByteArrayInputStream(imageUploadService.getDerivative(imageId, ImageSize.SMALL))).getWidth());
+    }
+
+    @Test
+    void imagesThatCannotBeRenderedFailWithoutRetrying() throws Throwable {
+        String oversized = imageUploadService.uploadImages(List.of(png("huge.png", 2000, 2000)), user).get(0).getId();
+        PostResponse post = postService.save(new PostRequest(), user, images(1), bindingResult());
+        String undecodable = imageUploadRepository.findReferencesByPostIdIn(List.of(post.getId())).get(0).getId();
+
+        ImageStatusResponse tooLarge = awaitStatus(oversized, ImageStatus.FAILED);
+        ImageStatusResponse unreadable = awaitStatus(undecodable, ImageStatus.FAILED);
+
+        assertEquals(1, tooLarge.getAttempts());
+        assertEquals("The image has more than 3,000,000 pixels.", tooLarge.getError());
+        assertEquals(1, unreadable.getAttempts());
+        assertEquals("The image could not be decoded.", unreadable.getError());
+        assertEquals(0, tooLarge.getSizes().size());
+        assertThrows(ImageNotFoundException.class, () -> imageUploadService.getThumbnail(oversized));
+    }
+
+    @Test
+    void thumbnailsAreOnlyMadeOnRequestForImagesStoredBeforeThePipeline() throws Throwable {
+        CountDownLatch release = new CountDownLatch(1);
+        imageProcessingExecutor.execute(() -> awaitQuietly(release));
+        try {
+            List<String> ids = imageUploadService.uploadImages(List.of(png("pending.png"), png("legacy.png", 400, 200),
+                    png("huge.png", 2000, 2000)), user).stream().map(ImageDetails::getId).toList();
+            markLegacy(ids.get(1));
+            markLegacy(ids.get(2));
+
+            assertTrue(imageUploadService.getThumbnail(ids.get(0)).isEmpty());
+            assertEquals(320, ImageIO.read(new ByteArrayInputStream(imageUploadService.getThumbnail(ids.get(1)).orElseThrow())).getWidth());
+            assertThrows(ImageNotFoundException.class, () -> imageUploadService.getThumbnail(ids.get(2)));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void failingImagesAreRetriedUntilTheyRunOutOfAttempts() throws Throwable {
+        ImageUpload missing = stuckImage(0);
+        missing.setStatus(ImageStatus.PENDING);
+        missing.setNextAttemptAt(null);
+        String imageId = imageUploadRepository.save(missing).getId();
+
+        imageProcessingService.process(imageId);
+        ImageStatusResponse retrying = imageUploadService.getProcessingStatus(imageId);
+        imageProcessingService.process(imageId);
+        imageProcessingService.process(imageId);
+
+        assertEquals(ImageStatus.PENDING, retrying.getStatus());
+        assertEquals(1, retrying.getAttempts());
+        assertEquals(0, imageUploadRepository.findIdsToProcess(ImageStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, 10)).size());
+        ImageStatusResponse failed = imageUploadService.getProcessingStatus(imageId);
+        assertEquals(ImageStatus.FAILED, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+    }
+
+    @Test
+    void theSweepTakesOverImagesWhoseLeaseRanOut() throws Throwable {
+        String retried = imageUploadRepository.save(stuckImage(1)).getId();
+        String exhausted = imageUploadRepository.save(stuckImage(3)).getId();
+
+        imageProcessingService.processPending();
+
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> imageUploadService.getProcessingStatus(retried).getAttempts() == 2);
+        assertEquals(ImageStatus.FAILED, imageUploadService.getProcessingStatus(exhausted).getStatus());
+        assertEquals(3, imageUploadService.getProcessingStatus(exhausted).getAttempts());
+    }
+
+    @Test
+    void equalImagesAreStoredOnceAndReferencedByEveryUpload() throws Throwable {
+        PostResponse first = postService.save(new PostRequest(), user, images(2), bindingResult());
+        PostResponse second = postService.save(new PostRequest(), user, images(3), bindingResult());
+        List<String> uploaded = imageUploadService.uploadImages(List.of(png("one.png"), png("copy.png")), user)
+                .stream().map(ImageDetails::getId).toList();
+
+        assertEquals(7, imageUploadRepository.count());
+        assertEquals(4, imageBlobRepository.count());
+        String shared = imageUploadRepository.findReferencesByPostIdIn(List.of(second.getId())).get(0).getId();
+        assertArrayEquals(imageUploadService.getImage(shared),
+                imageUploadService.getImage(imageUploadRepository.findReferencesByPostIdIn(List.of(first.getId())).get(0).getId()));
+        assertArrayEquals(imageUploadService.getImage(uploaded.get(0)), imageUploadService.getImage(uploaded.get(1)));
+
+        ImageBlobStats stats = imageBlobCollector.refreshStats();
+        assertEquals(4, stats.getContents());
+        assertEquals(7, stats.getReferenceCount());
+        assertEquals(List.of(1L, 2L, 2L, 2L), imageBlobRepository.findAll().stream().map(ImageBlob::getReferenceCount).sorted().toList());
+        assertEquals(imageBlobRepository.findAll().stream().mapToLong(blob -> blob.getStoredLength() * (blob.getReferenceCount() - 1)).sum(),
+                stats.getReferencedBytes() - stats.getStoredBytes());
+        assertTrue(ImageBlobCollector.dedupRatio(stats) > 1);
+    }
+
+    @Test
+    void storedImagesAreReclaimedOnlyOnceTheLastReferenceIsGone() throws Throwable {
+        PostResponse first = postService.save(new PostRequest(), user, images(1), bindingResult());
+        PostResponse second = postService.save(new PostRequest(), user, images(1), bindingResult());
+        String remaining = imageUploadRepository.findReferencesByPostIdIn(List.of(second.getId())).get(0).getId();
+
+        postService.deleteById(first.getId());
+        imageBlobCollector.reclaim();
+
+        assertEquals(1, imageBlobRepository.count());
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, imageUploadService.getImage(remaining));
+
+        postService.deleteById(second.getId());
+        imageBlobCollector.reclaim();
+
+        assertEquals(0, imageBlobRepository.count());
+        assertEquals(0, imageBlobCollector.getStats().getContents());
+    }
+
+    @Test
+    void uploadsAreRefusedWhileTheQueueIsFull() throws Throwable {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            files.add(png(i + ".png"));
+        }
+
+        assertThrows(ServiceBusyException.class, () -> imageUploadService.uploadImages(files, user));
+        assertEquals(0, imageUploadRepository.count());
+    }
+
+    private static ImageUpload stuckImage(int attempts) {
+        ImageUpload imageUpload = new ImageUpload();
+        imageUpload.setStorage(ImageStorage.FILESYSTEM);
+        imageUpload.setContentHash("0".repeat(64));
+        imageUpload.setStatus(ImageStatus.PROCESSING);
+        imageUpload.setProcessingAttempts(attempts);
+        imageUpload.setNextAttemptAt(LocalDateTime.now().minusMinutes(1));
+        return imageUpload;
+    }
+
+    private ImageStatusResponse awaitStatus(String imageId, ImageStatus expected) throws Throwable {
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> imageUploadService.getProcessingStatus(imageId).getStatus() == expected);
+        return imageUploadService.getProcessingStatus(imageId);
+    }
+
+    private void markLegacy(String imageId) {
+        ImageUpload imageUpload = imageUploadRepository.findById(imageId).orElseThrow();
+        imageUpload.setStatus(null);
+        imageUploadRepository.save(imageUpload);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long savePostStatements(List<String> images) throws Throwable {
+        statistics.clear();
+        postService.save(new PostRequest(), user, images, bindingResult());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static List<String> images(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Base64.getEncoder().encodeToString(new byte[]{(byte) i, 1, 2, 3}))
+                .toList();
+    }
+
+    private static MockMultipartFile png(String name) throws IOException {
+        return png(name, 4, 4);
+    }
+
+    private static MockMultipartFile png(String name, int width, int height) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", outputStream);
+        return new MockMultipartFile("images", name, "image/png", outputStream.toByteArray());
+    }
+
+    private static BeanPropertyBindingResult bindingResult() {
+        return new BeanPropertyBindingResult(new PostRequest(), "postRequest");
+    }
+}
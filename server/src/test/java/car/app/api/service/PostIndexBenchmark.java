@@ -0,0 +1,123 @@
+package car.app.api.service;
+
+import car.app.api.ServerApplication;
+import car.app.api.controller.model.SearchBuilderRequest;
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.enums.AdvertIndex;
+import car.app.api.enums.Fuel;
+import car.app.api.enums.PostType;
+import car.app.api.enums.Transmission;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares answering a filtered search page from the {@link PostIndex} against the criteria query,
+ * on the H2 test database. {@code indexIds} is the index lookup alone, {@code index} adds loading the
+ * page of posts. Run {@link #main} from the IDE or with the test classpath after
+ * {@code mvn -pl server test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostIndexBenchmark {
+    private static final String[] BRANDS = {"Audi", "BMW", "Fiat", "Ford", "Mercedes-Benz", "Toyota", "Volkswagen"};
+
+    @Param({"10000", "50000"})
+    private int posts;
+
+    private ConfigurableApplicationContext context;
+    private SearchService searchService;
+    private PostIndex postIndex;
+    private SearchBuilderRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ServerApplication.class)
+                .profiles("test")
+                .run("--server.port=0", "--app.search.post-index.enabled=true",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false");
+        searchService = context.getBean(SearchService.class);
+        postIndex = context.getBean(PostIndex.class);
+
+        PostRepository postRepository = context.getBean(PostRepository.class);
+        User user = context.getBean(UserRepository.class).save(new User("benchmark", "password", "First", "Last",
+                "Tirana", "Albania", null, null, null, "USER"));
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < posts; i++) {
+            Post post = new Post();
+            post.setUser(user);
+            post.setTitle("Post " + i);
+            post.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+            post.setFuel(Fuel.values()[random.nextInt(Fuel.values().length)]);
+            post.setTransmission(Transmission.values()[random.nextInt(Transmission.values().length)]);
+            post.setPostType(PostType.values()[random.nextInt(PostType.values().length)]);
+            post.setPostAdvertIndex(AdvertIndex.values()[random.nextInt(AdvertIndex.values().length)]);
+            post.setPrice(BigDecimal.valueOf(500 + random.nextInt(60_000)));
+            post.setFirstRegistration(1995 + random.nextInt(30));
+            post.setKilometers(random.nextInt(300_000));
+            post.setCreatedAt(now.minusMinutes(random.nextInt(500_000)));
+            postRepository.save(post);
+        }
+        postIndex.rebuild();
+
+        request = new SearchBuilderRequest();
+        request.setBrand("Audi");
+        request.setFuel(Fuel.DIESEL);
+        request.setLowestPrice(new BigDecimal("5000"));
+        request.setHighestPrice(new BigDecimal("30000"));
+        request.setFromYear(2010);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Post> criteria() {
+        return searchService.searchPostsWithCriteria(request, 2, 20, true);
+    }
+
+    @Benchmark
+    public PostIndex.Hits indexIds() {
+        return postIndex.search(request, 40, 20);
+    }
+
+    @Benchmark
+    public Page<Post> index() {
+        return searchService.searchPostsFromIndex(postIndex, request, 2, 20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PostIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
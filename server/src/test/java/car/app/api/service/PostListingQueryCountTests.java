@@ -0,0 +1,142 @@
+package car.app.api.service;
+
+import car.app.api.configs.CacheConfig;
+import car.app.api.controller.model.EditPostRequest;
+import car.app.api.entities.ImageUpload;
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import car.app.api.storage.DatabaseImageStore;
+import car.app.api.storage.FileSystemImageStore;
+import car.app.api.storage.ImageStores;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({PostService.class, SearchService.class, ImageUploadService.class, CacheConfig.class, FavoriteIndex.class,
+        ImageStores.class, DatabaseImageStore.class, FileSystemImageStore.class})
+class PostListingQueryCountTests {
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageUploadRepository imageUploadRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CacheManager cacheManager;
+    @MockBean
+    private ImageProcessingService imageProcessingService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingPageCostsTheSameNumberOfStatementsRegardlessOfPageSize() {
+        createPosts(4);
+        long smallPage = countStatements(() -> postService.findAll(0, 2));
+
+        createPosts(40);
+        long largePage = countStatements(() -> postService.findAll(0, 20));
+
+        assertEquals(smallPage, largePage);
+    }
+
+    @Test
+    void everyListingEndpointBatchesImageLoading() {
+        createPosts(25);
+        String userId = userRepository.findAll().get(0).getId();
+
+        assertEquals(3, countStatements(() -> postService.findAll(0, 20)));
+        assertEquals(3, countStatements(() -> postService.search(null, 0, 20)));
+        assertEquals(2, countStatements(() -> postService.listByUser(userId, 0, 20)));
+    }
+
+    @Test
+    void cachedPostDetailsSkipTheImageQueryUntilThePostChanges() throws Throwable {
+        createPosts(5);
+        String postId = postService.findAll(0, 20).getContent().get(0).getId();
+
+        assertEquals(1, statements(() -> postService.findAll(0, 20)));
+
+        EditPostRequest editPostRequest = new EditPostRequest();
+        editPostRequest.setTitle("Edited");
+        postService.editPostDetails(postId, editPostRequest, userRepository.findAll().get(0), new BeanPropertyBindingResult(editPostRequest, "editPostRequest"));
+        assertEquals(2, statements(() -> postService.findAll(0, 20)));
+        assertEquals("Edited", postService.findAll(0, 20).getContent().stream()
+                .filter(post -> post.getId().equals(postId)).findFirst().orElseThrow().getTitle());
+    }
+
+    @Test
+    void repeatedPostLookupsAreServedFromTheEntityCache() {
+        createPosts(1);
+        String postId = postRepository.findAll(PageRequest.of(0, 1)).getContent().get(0).getId();
+        postRepository.findById(postId);
+
+        assertEquals(0, statements(() -> postRepository.findById(postId).orElseThrow()));
+    }
+
+    /**
+     * Statements run by a listing with nothing in the post details cache.
+     */
+    private long countStatements(Runnable listing) {
+        cacheManager.getCache(CacheConfig.POST_DETAILS).clear();
+        return statements(listing);
+    }
+
+    private long statements(Runnable listing) {
+        statistics.clear();
+        listing.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createPosts(int count) {
+        for (int i = 0; i < count; i++) {
+            User user = userRepository.save(new User("user" + i + "-" + System.nanoTime(), "password", "First", "Last",
+                    "Tirana", "Albania", null, null, null, "USER"));
+            Post post = new Post();
+            post.setTitle("Post " + i);
+            post.setUser(user);
+            post = postRepository.save(post);
+            for (int j = 0; j < 2; j++) {
+                ImageUpload imageUpload = new ImageUpload();
+                imageUpload.setPost(post);
+                imageUpload.setProfileImage(Base64.getEncoder().encodeToString(new byte[]{(byte) i, (byte) j}));
+                imageUploadRepository.save(imageUpload);
+            }
+        }
+    }
+}
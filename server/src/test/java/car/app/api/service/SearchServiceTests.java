@@ -0,0 +1,277 @@
+package car.app.api.service;
+
+import car.app.api.configs.CacheConfig;
+import car.app.api.controller.model.SearchBuilderRequest;
+import car.app.api.controller.model.SearchFacets;
+import car.app.api.entities.Post;
+import car.app.api.entities.User;
+import car.app.api.enums.Fuel;
+import car.app.api.enums.Transmission;
+import car.app.api.repository.PostRepository;
+import car.app.api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({SearchService.class, CacheConfig.class})
+class SearchServiceTests {
+
+    @Autowired
+    private SearchService searchService;
+    @SpyBean
+    private PostRepository postRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<String> audiIdsNewestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User("searcher", "password", "First", "Last",
+                "Tirana", "Albania", null, null, null, "USER"));
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Post> audis = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // Pairs of posts share a creation time, so the id has to break ties.
+            Post post = createPost(user, i % 3 == 0 ? "BMW" : "Audi", createdAt.plusMinutes(i / 2));
+            if (post.getBrand().equals("Audi")) {
+                audis.add(post);
+            }
+        }
+        audis.sort(Comparator.comparing(Post::getCreatedAt).thenComparing(Post::getId).reversed());
+        audis.forEach(post -> audiIdsNewestFirst.add(post.getId()));
+    }
+
+    @Test
+    void pagesStartAtPageTimesSizeAndCountOnlyMatchingPosts() {
+        Page<Post> second = searchService.searchPosts(audi(), 1, 5);
+
+        assertEquals(16, second.getTotalElements());
+        assertEquals(4, second.getTotalPages());
+        assertEquals(audiIdsNewestFirst.subList(5, 10), ids(second.getContent()));
+    }
+
+    @Test
+    void skippingTheCountStillTellsWhetherThereIsANextPage() {
+        Page<Post> third = searchService.searchPosts(audi(), 2, 5, false);
+        Page<Post> last = searchService.searchPosts(audi(), 3, 5, false);
+
+        assertEquals(audiIdsNewestFirst.subList(10, 15), ids(third.getContent()));
+        assertTrue(third.hasNext());
+        assertEquals(audiIdsNewestFirst.subList(15, 16), ids(last.getContent()));
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    void keysetPagesWalkThroughAllMatchingPostsInOrder() {
+        List<String> seen = new ArrayList<>();
+        SearchCursor cursor = null;
+        List<Post> page;
+        do {
+            page = searchService.searchPostsAfter(audi(), cursor, 5);
+            seen.addAll(ids(page));
+            if (!page.isEmpty()) {
+                Post last = page.get(page.size() - 1);
+                cursor = SearchCursor.decode(new SearchCursor(last.getCreatedAt(), last.getId()).encode());
+            }
+        } while (page.size() == 5);
+
+        assertEquals(audiIdsNewestFirst, seen);
+    }
+
+    @Test
+    void priceAndYearFiltersCompareNumerically() {
+        User user = userRepository.findAll().get(0);
+        Post cheap = createPost(user, "Fiat", LocalDateTime.now());
+        cheap.setPrice(new BigDecimal("900"));
+        cheap.setFirstRegistration(2009);
+        Post matching = createPost(user, "Fiat", LocalDateTime.now());
+        matching.setPrice(new BigDecimal("2000.50"));
+        matching.setFirstRegistration(2015);
+        Post expensive = createPost(user, "Fiat", LocalDateTime.now());
+        expensive.setPrice(new BigDecimal("10000"));
+        expensive.setFirstRegistration(2015);
+        postRepository.save(cheap);
+        postRepository.save(matching);
+        postRepository.save(expensive);
+
+        SearchBuilderRequest searchBuilderRequest = new SearchBuilderRequest();
+        searchBuilderRequest.setBrand("Fiat");
+        searchBuilderRequest.setLowestPrice(new BigDecimal("1000"));
+        searchBuilderRequest.setHighestPrice(new BigDecimal("5000"));
+        searchBuilderRequest.setFromYear(2010);
+
+        assertEquals(List.of(matching.getId()), ids(searchService.searchPosts(searchBuilderRequest, 0, 20).getContent()));
+    }
+
+    @Test
+    void textSearchMatchesWordsInTitleDescriptionBrandAndModel() {
+        User user = userRepository.findAll().get(0);
+        Post diesel = createPost(user, "Skoda", LocalDateTime.now());
+        diesel.setDescription("Well kept DIESEL estate");
+        postRepository.save(diesel);
+        Post m3 = createPost(user, "Bmw", LocalDateTime.now().plusMinutes(1));
+        m3.setModel("M3");
+        postRepository.save(m3);
+
+        Page<Post> result = searchService.searchText("m3  Diesel", 0, 10);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(List.of(m3.getId(), diesel.getId()), ids(result.getContent()));
+    }
+
+    @Test
+    void rankedTextSearchKeepsTheOrderAndTotalOfTheFullTextIndex() {
+        ReflectionTestUtils.setField(searchService, "fullTextSupported", true);
+        List<String> ranked = List.of(audiIdsNewestFirst.get(3), audiIdsNewestFirst.get(0), audiIdsNewestFirst.get(7));
+        doReturn(new PageImpl<>(ranked, PageRequest.of(1, 3), 9)).when(postRepository).findIdsByFullText("audi", PageRequest.of(1, 3));
+
+        Page<Post> result = searchService.searchText("audi", 1, 3);
+
+        assertEquals(ranked, ids(result.getContent()));
+        assertEquals(9, result.getTotalElements());
+        assertEquals(3, result.getTotalPages());
+    }
+
+    @Test
+    void textSearchFallsBackToLikeWithoutTheFullTextIndex() {
+        searchService.searchText("audi", 0, 10);
+
+        verify(postRepository, never()).findIdsByFullText(anyString(), any());
+    }
+
+    @Test
+    void facetsCountMatchingPostsPerValueAndAreCachedPerFilterSet() {
+        User user = userRepository.findAll().get(0);
+        Post diesel = createPost(user, "Audi", LocalDateTime.now());
+        diesel.setFuel(Fuel.DIESEL);
+        diesel.setTransmission(Transmission.MANUAL);
+        diesel.setPrice(new BigDecimal("7500"));
+        postRepository.save(diesel);
+        Post gasoline = createPost(user, "Audi", LocalDateTime.now());
+        gasoline.setFuel(Fuel.GASOLINE);
+        gasoline.setPrice(new BigDecimal("10000"));
+        postRepository.save(gasoline);
+
+        SearchFacets all = searchService.getFacets(new SearchBuilderRequest());
+        SearchFacets audi = searchService.getFacets(audi());
+
+        assertEquals(Map.of("Audi", 18L, "BMW", 9L), all.getBrands());
+        assertEquals(List.of("Audi", "BMW"), List.copyOf(all.getBrands().keySet()));
+        assertEquals(Map.of("unknown", 16L, "DIESEL", 1L, "GASOLINE", 1L), audi.getFuels());
+        assertEquals(Map.of("unknown", 17L, "MANUAL", 1L), audi.getTransmissions());
+        assertEquals(List.of("0-5000", "5000-10000", "10000-20000", "20000-50000", "50000+", "unknown"),
+                List.copyOf(audi.getPriceRanges().keySet()));
+        assertEquals(1L, audi.getPriceRanges().get("5000-10000"));
+        assertEquals(1L, audi.getPriceRanges().get("10000-20000"));
+        assertEquals(16L, audi.getPriceRanges().get("unknown"));
+        assertSame(audi, searchService.getFacets(audi()));
+    }
+
+    @Test
+    void cachedCountsAndFacetsAreKeyedOnACopyOfTheFilters() {
+        SearchBuilderRequest request = audi();
+        assertEquals(16, searchService.getCount(request));
+        SearchFacets facets = searchService.getFacets(request);
+
+        request.setBrand("BMW");
+        assertEquals(9, searchService.getCount(request));
+        assertEquals(16, searchService.getCount(audi()));
+        assertSame(facets, searchService.getFacets(audi()));
+
+        SearchBuilderRequest priced = audi();
+        priced.setLowestPrice(new BigDecimal("5000"));
+        SearchBuilderRequest samePrice = audi();
+        samePrice.setLowestPrice(new BigDecimal("5000.00"));
+        assertEquals(SearchKey.of(priced), SearchKey.of(samePrice));
+    }
+
+    @Test
+    void postIndexAnswersTheSameSearchesAsTheCriteriaQuery() {
+        User user = userRepository.findAll().get(0);
+        Post fiat = createPost(user, "Fiat", LocalDateTime.now());
+        fiat.setPrice(new BigDecimal("2000.50"));
+        fiat.setFirstRegistration(2015);
+        fiat.setFuel(Fuel.DIESEL);
+        fiat.setTransmission(Transmission.MANUAL);
+        fiat.setEngineSize(new BigDecimal("1.4"));
+        postRepository.save(fiat);
+        PostIndex index = new PostIndex(postRepository);
+        index.rebuild();
+
+        SearchBuilderRequest priced = new SearchBuilderRequest();
+        priced.setLowestPrice(new BigDecimal("2000.50"));
+        priced.setFromYear(2015);
+        priced.setEngineSize(new BigDecimal("1.40"));
+        SearchBuilderRequest diesel = new SearchBuilderRequest();
+        diesel.setFuel(Fuel.DIESEL);
+        diesel.setTransmission(Transmission.MANUAL);
+        for (SearchBuilderRequest request : List.of(audi(), priced, diesel, new SearchBuilderRequest())) {
+            for (int page = 0; page < 4; page++) {
+                Page<Post> expected = searchService.searchPostsWithCriteria(request, page, 7, true);
+                Page<Post> actual = searchService.searchPostsFromIndex(index, request, page, 7);
+                assertEquals(ids(expected.getContent()), ids(actual.getContent()));
+                assertEquals(expected.getTotalElements(), actual.getTotalElements());
+            }
+        }
+
+        index.remove(fiat.getId());
+        assertEquals(0, searchService.searchPostsFromIndex(index, diesel, 0, 7).getTotalElements());
+        fiat.setBrand("Audi");
+        index.put(fiat);
+        assertEquals(fiat.getId(), searchService.searchPostsFromIndex(index, audi(), 0, 7).getContent().get(0).getId());
+    }
+
+    private Post createPost(User user, String brand, LocalDateTime createdAt) {
+        Post post = new Post();
+        post.setTitle(brand);
+        post.setBrand(brand);
+        post.setUser(user);
+        post.setCreatedAt(createdAt);
+        return postRepository.save(post);
+    }
+
+    private static SearchBuilderRequest audi() {
+        SearchBuilderRequest searchBuilderRequest = new SearchBuilderRequest();
+        searchBuilderRequest.setBrand("Audi");
+        return searchBuilderRequest;
+    }
+
+    private static List<String> ids(List<Post> posts) {
+        return posts.stream().map(Post::getId).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package car.app.api.service;
+
+import car.app.api.configs.CacheConfig;
+import car.app.api.entities.User;
+import car.app.api.repository.UserRepository;
+import car.app.api.service.auth.PasswordHashingService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({UserService.class, CacheConfig.class})
+class UserServiceCacheTests {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userRepository.save(new User("cached", "password", "First", "Last", "Tirana", "Albania", null, null, null, "USER"));
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void usersAreLoadedOncePerUsernameUntilDeleted() throws Throwable {
+        statistics.clear();
+        User user = userService.getByUsername("cached");
+        assertSame(user, userService.getByUsername("cached"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        userService.deleteUser(user.getId());
+
+        assertThrows(UsernameNotFoundException.class, () -> userService.getByUsername("cached"));
+    }
+
+    @Test
+    void authenticatedUserComesFromTheSecurityContext() throws Throwable {
+        User user = userService.getByUsername("cached");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+        statistics.clear();
+        assertSame(user, userService.getAuthenticatedUser());
+        assertEquals("cached", userService.get().getUsername());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void loginRehashesPasswordsMadeWithALowerCost() {
+        BCryptPasswordEncoder previous = new BCryptPasswordEncoder(4);
+        BCryptPasswordEncoder current = new BCryptPasswordEncoder(6);
+        User user = userRepository.findByUsername("cached").orElseThrow();
+        user.setPassword(previous.encode("secret"));
+        userRepository.save(user);
+        userService.getByUsername("cached");
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userService::getByUsername);
+        provider.setPasswordEncoder(current);
+        provider.setUserDetailsPasswordService(userService::updatePassword);
+        provider.authenticate(new UsernamePasswordAuthenticationToken("cached", "secret"));
+
+        String rehashed = userRepository.findByUsername("cached").orElseThrow().getPassword();
+        assertTrue(rehashed.startsWith("$2a$06$"));
+        assertFalse(current.upgradeEncoding(rehashed));
+        assertEquals(rehashed, userService.getByUsername("cached").getPassword());
+    }
+}
@@ -0,0 +1,48 @@
+package car.app.api.service.auth;
+
+import car.app.api.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "app.security.token-revocation.store=database")
+@Import(DatabaseTokenRevocationStore.class)
+class DatabaseTokenRevocationStoreTests {
+
+    @Autowired
+    private DatabaseTokenRevocationStore store;
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Test
+    void revokedTokensAreSharedThroughTheTableUntilPurged() {
+        store.revoke("expired", Instant.now().minusSeconds(1));
+        store.revoke("valid", Instant.now().plusSeconds(60));
+        store.revoke("valid", Instant.now().plusSeconds(60));
+
+        assertTrue(store.isRevoked("valid"));
+        assertFalse(store.isRevoked("unknown"));
+
+        store.purgeExpired();
+
+        assertFalse(store.isRevoked("expired"));
+        assertTrue(store.isRevoked("valid"));
+        assertEquals(1, revokedTokenRepository.count());
+    }
+}
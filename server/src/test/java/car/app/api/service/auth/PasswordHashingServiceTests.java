@@ -0,0 +1,77 @@
+package car.app.api.service.auth;
+
+import car.app.api.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTests {
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ThreadPoolTaskExecutor executor;
+    private PasswordHashingService passwordHashingService;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("error.503.passwordHashingBusy", Locale.ENGLISH, "busy");
+        passwordHashingService = new PasswordHashingService(passwordEncoder, executor, meterRegistry, messageSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void hashesOnTheExecutorAndRecordsTimings() throws Exception {
+        String hash = passwordHashingService.encode("secret").get();
+
+        assertTrue(passwordEncoder.matches("secret", hash));
+        assertEquals(1, meterRegistry.timer("password.hashing", "operation", "encode").count());
+        assertEquals(1, meterRegistry.timer("password.hashing.queue", "operation", "encode").count());
+    }
+
+    @Test
+    void rejectsWorkWhenTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = passwordHashingService.submit("authenticate", () -> await(release));
+        CompletableFuture<Boolean> queued = passwordHashingService.submit("authenticate", () -> await(release));
+
+        ServiceBusyException ex = assertThrows(ServiceBusyException.class,
+                () -> passwordHashingService.submit("authenticate", () -> true));
+        assertEquals("busy", ex.getMessage());
+        assertEquals(1, meterRegistry.counter("password.hashing.rejected", "operation", "authenticate").count());
+
+        release.countDown();
+        assertTrue(running.get() && queued.get());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            latch.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
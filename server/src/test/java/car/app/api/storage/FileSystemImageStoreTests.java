@@ -0,0 +1,161 @@
+package car.app.api.storage;
+
+import car.app.api.entities.ImageBlob;
+import car.app.api.entities.ImageUpload;
+import car.app.api.enums.ImageStorage;
+import car.app.api.repository.ImageBlobRepository;
+import car.app.api.repository.ImageUploadRepository;
+import car.app.api.repository.projection.StoredImage;
+import car.app.api.utils.ImageUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FileSystemImageStoreTests {
+
+    @Autowired
+    private ImageUploadRepository imageUploadRepository;
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @TempDir
+    private Path root;
+
+    private FileSystemImageStore imageStore;
+    private byte[] content;
+    private String contentHash;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new FileSystemImageStore(root.toString(), imageUploadRepository, imageBlobRepository);
+        content = new byte[4096];
+        new Random(42).nextBytes(content);
+        contentHash = ImageUtil.sha256Hex(content);
+    }
+
+    @Test
+    void equalContentIsWrittenToOneFile() throws IOException {
+        ImageUpload first = imageUpload();
+        first.storeProfileImage(content);
+        Path staged = Files.write(root.resolve("staged"), content);
+
+        ImageBlob written = imageStore.write(first, content);
+        ImageBlob again = imageStore.write(imageUpload(), staged);
+
+        Path file = root.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2, 4)).resolve(contentHash);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(1, countFiles(root.resolve(contentHash.substring(0, 2))));
+        assertEquals(content.length, written.getStoredLength());
+        assertEquals(content.length, again.getStoredLength());
+        assertNull(written.getData());
+        assertNull(first.getProfileImage());
+        assertEquals(ImageStorage.FILESYSTEM, first.getStorage());
+    }
+
+    @Test
+    void storedContentIsReadWholeOrByRange() throws IOException {
+        imageStore.write(imageUpload(), content);
+        StoredImage storedImage = storedImage();
+
+        try (InputStream inputStream = imageStore.openStream(storedImage)) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        assertEquals(100, imageStore.transferTo(storedImage, 1000, 100, Channels.newChannel(range)));
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 1100), range.toByteArray());
+        ByteArrayOutputStream tail = new ByteArrayOutputStream();
+        assertEquals(96, imageStore.transferTo(storedImage, 4000, 200, Channels.newChannel(tail)));
+        assertArrayEquals(Arrays.copyOfRange(content, 4000, 4096), tail.toByteArray());
+    }
+
+    @Test
+    void contentIsOnlyDeletedOnceNothingReferencesIt() throws IOException {
+        ImageUpload legacy = imageUpload();
+        ImageBlob blob = imageBlobRepository.save(imageStore.write(legacy, content));
+        imageUploadRepository.save(legacy);
+
+        imageStore.delete(contentHash);
+        assertTrue(imageStore.exists(contentHash));
+
+        imageBlobRepository.delete(blob);
+        imageStore.delete(contentHash);
+        assertTrue(imageStore.exists(contentHash));
+
+        imageUploadRepository.delete(legacy);
+        imageStore.delete(contentHash);
+        assertFalse(imageStore.exists(contentHash));
+    }
+
+    @Test
+    void contentWrittenByARolledBackTransactionIsDeleted() {
+        transactionTemplate.executeWithoutResult(status -> {
+            write(imageUpload());
+            status.setRollbackOnly();
+        });
+        assertFalse(imageStore.exists(contentHash));
+
+        transactionTemplate.executeWithoutResult(status -> imageBlobRepository.save(write(imageUpload())));
+        assertTrue(imageStore.exists(contentHash));
+    }
+
+    private ImageBlob write(ImageUpload imageUpload) {
+        try {
+            return imageStore.write(imageUpload, content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ImageUpload imageUpload() {
+        ImageUpload imageUpload = new ImageUpload();
+        imageUpload.setContentHash(contentHash);
+        imageUpload.setContentType("application/octet-stream");
+        imageUpload.setContentLength((long) content.length);
+        imageUpload.setCreatedAt(LocalDateTime.now());
+        return imageUpload;
+    }
+
+    private StoredImage storedImage() {
+        ImageUpload imageUpload = imageUpload();
+        imageUpload.setStorage(ImageStorage.FILESYSTEM);
+        String id = imageUploadRepository.save(imageUpload).getId();
+        return imageUploadRepository.findStoredImageById(id).orElseThrow();
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
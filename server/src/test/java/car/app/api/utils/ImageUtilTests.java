@@ -0,0 +1,93 @@
+package car.app.api.utils;
+
+import car.app.api.enums.ImageCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageUtilTests {
+
+    @Test
+    void deflatedContentDecodesToTheSameBytes() throws IOException {
+        byte[] content = compressible(100_000, 1);
+
+        byte[] encoded = ImageUtil.encode(ImageCodec.DEFLATE, content);
+
+        assertTrue(encoded.length < content.length);
+        assertArrayEquals(content, ImageUtil.decode(ImageCodec.DEFLATE, encoded));
+        try (InputStream inputStream = ImageUtil.openStream(ImageCodec.DEFLATE, encoded)) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        assertSame(content, ImageUtil.encode(ImageCodec.IDENTITY, content));
+        assertArrayEquals(content, ImageUtil.decode(ImageCodec.IDENTITY, content));
+    }
+
+    @Test
+    void pooledCodecsStartFromScratchWhenReused() throws IOException {
+        byte[] first = compressible(50_000, 2);
+        byte[] second = compressible(20_000, 3);
+        byte[] encodedFirst = ImageUtil.encode(ImageCodec.DEFLATE, first);
+
+        // Close a stream halfway, so the inflater goes back to the pool in the middle of a stream.
+        try (InputStream inputStream = ImageUtil.openStream(ImageCodec.DEFLATE, encodedFirst)) {
+            assertEquals(100, inputStream.readNBytes(100).length);
+        }
+        for (int i = 0; i < ImageUtil.POOL_SIZE + 1; i++) {
+            byte[] encodedSecond = ImageUtil.encode(ImageCodec.DEFLATE, second);
+            assertArrayEquals(second, ImageUtil.decode(ImageCodec.DEFLATE, encodedSecond));
+            assertArrayEquals(first, ImageUtil.decode(ImageCodec.DEFLATE, encodedFirst));
+        }
+
+        Deflater deflater = ImageUtil.borrowDeflater();
+        Inflater inflater = ImageUtil.borrowInflater();
+        try {
+            assertEquals(0, deflater.getBytesRead());
+            assertEquals(0, inflater.getBytesRead());
+            assertEquals(0, inflater.getRemaining());
+        } finally {
+            ImageUtil.release(deflater);
+            ImageUtil.release(inflater);
+        }
+    }
+
+    @Test
+    void codecsThatDoNotFitInThePoolAreEnded() {
+        List<Deflater> deflaters = new ArrayList<>();
+        List<Inflater> inflaters = new ArrayList<>();
+        for (int i = 0; i < ImageUtil.POOL_SIZE + 1; i++) {
+            deflaters.add(ImageUtil.borrowDeflater());
+            inflaters.add(ImageUtil.borrowInflater());
+        }
+
+        deflaters.forEach(ImageUtil::release);
+        inflaters.forEach(ImageUtil::release);
+
+        assertEquals(0, deflaters.get(0).getBytesRead());
+        assertEquals(0, inflaters.get(0).getBytesRead());
+        // Ended codecs have released their native memory and refuse any further use.
+        assertThrows(NullPointerException.class, deflaters.get(ImageUtil.POOL_SIZE)::getBytesRead);
+        assertThrows(NullPointerException.class, inflaters.get(ImageUtil.POOL_SIZE)::getBytesRead);
+    }
+
+    private static byte[] compressible(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append("pixel-").append(random.nextInt(64)).append(' ');
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+}